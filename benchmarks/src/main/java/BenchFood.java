@@ -0,0 +1,30 @@
+import bench.Fixtures;
+
+import java.util.SplittableRandom;
+
+public class BenchFood implements Fixtures.FoodFixture {
+    private Board board;
+    private SplittableRandom random;
+
+    @Override
+    public void setUp(int rows, int cols, double fill, long seed) {
+        board = new Board(rows, cols);
+        random = new SplittableRandom(seed);
+        for (int index = 0; index < rows * cols; index++) {
+            if (random.nextDouble() < fill) {
+                board.setCellType(index, CellType.SNAKE_NODE);
+            }
+        }
+    }
+
+    @Override
+    public boolean generateFood() {
+        boolean placed = board.generateFood(random);
+        if (placed) {
+            board.setCellType(board.getFood(0), CellType.EMPTY);
+        }
+        //nobody reads the dirty log here, keep it from overflowing
+        board.clearDirty();
+        return placed;
+    }
+}
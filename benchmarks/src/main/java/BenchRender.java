@@ -0,0 +1,40 @@
+import bench.Fixtures;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+// A panel showing a game a few hundred ticks in, with the motion settled so every paint draws the same frame
+public class BenchRender implements Fixtures.RenderFixture {
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Override
+    public void setUp(int rows, int cols, int width, int height) {
+        GameEngine engine = new GameEngine(rows, cols, new SplittableRandom(42));
+        Controller controller = new RandomController(new SplittableRandom(43), 0.1);
+        for (int i = 0; i < 300; i++) {
+            engine.step(controller.nextDirection(engine));
+            if (engine.isGameOver()) {
+                engine.reset();
+            }
+        }
+
+        SnapshotExchange snapshots = new SnapshotExchange();
+        snapshots.getBack().copyFrom(engine, 1, System.nanoTime(), 0);
+        snapshots.publish();
+        panel = new GamePanel(snapshots);
+        panel.setSize(width, height);
+        panel.repaintAnimations();
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @Override
+    public int paint() {
+        panel.paintComponent(graphics);
+        return image.getRGB(image.getWidth() / 2, image.getHeight() / 2);
+    }
+}
@@ -0,0 +1,29 @@
+import bench.Fixtures;
+
+// Snake laid along the autopilot's Hamiltonian cycle, so it can move forever without crashing
+public class BenchSnake implements Fixtures.SnakeFixture {
+    private int[] cycle;
+    private Snake snake;
+
+    @Override
+    public void setUp(int rows, int cols, int length) {
+        Board board = new Board(rows, cols);
+        cycle = Autopilot.buildCycle(rows, cols);
+        snake = new Snake(board, 0);
+        while (snake.getLength() < length) {
+            snake.grow(cycle[snake.getHead()]);
+        }
+    }
+
+    @Override
+    public int move() {
+        int next = cycle[snake.getHead()];
+        snake.move(next);
+        return next;
+    }
+
+    @Override
+    public boolean checkCrash() {
+        return snake.checkCrash(cycle[snake.getHead()]);
+    }
+}
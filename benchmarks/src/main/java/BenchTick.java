@@ -0,0 +1,23 @@
+import bench.Fixtures;
+
+import java.util.SplittableRandom;
+
+public class BenchTick implements Fixtures.TickFixture {
+    private GameEngine engine;
+    private Controller controller;
+
+    @Override
+    public void setUp(int rows, int cols, long seed) {
+        engine = new GameEngine(rows, cols, new SplittableRandom(seed));
+        controller = new RandomController(new SplittableRandom(seed + 1), 0.1);
+    }
+
+    @Override
+    public int tick() {
+        TickResult result = engine.step(controller.nextDirection(engine));
+        if (engine.isGameOver()) {
+            engine.reset();
+        }
+        return result.ordinal();
+    }
+}
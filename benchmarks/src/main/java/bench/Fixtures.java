@@ -0,0 +1,46 @@
+package bench;
+
+// The game lives in the unnamed package, which a named package cannot import, and JMH will not generate
+// code for benchmarks in the unnamed package. So the benchmarks reach the game through these interfaces,
+// implemented by the unnamed-package Bench* classes in this module and loaded by name.
+public final class Fixtures {
+    private Fixtures() {}
+
+    public interface SnakeFixture {
+        //snake of the given length lying along a cycle through a rows x cols board
+        void setUp(int rows, int cols, int length);
+        //one step along the cycle, returns the new head
+        int move();
+        //crash test of the cell ahead of the head
+        boolean checkCrash();
+    }
+
+    public interface FoodFixture {
+        //rows x cols board with about fill of its cells taken by snake
+        void setUp(int rows, int cols, double fill, long seed);
+        //place one food item and take it away again so the fill stays put
+        boolean generateFood();
+    }
+
+    public interface TickFixture {
+        //game on a rows x cols board steered by the random controller, restarted whenever it ends
+        void setUp(int rows, int cols, long seed);
+        //one engine step, returns the TickResult ordinal
+        int tick();
+    }
+
+    public interface RenderFixture {
+        //panel of width x height pixels showing a game on a rows x cols board
+        void setUp(int rows, int cols, int width, int height);
+        //paint the panel into its offscreen image, returns a pixel so the paint cannot be skipped
+        int paint();
+    }
+
+    static <T> T load(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing benchmark fixture " + className, e);
+        }
+    }
+}
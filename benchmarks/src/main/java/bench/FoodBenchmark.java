@@ -0,0 +1,30 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Board.generateFood() on a 512 x 512 board as it fills up - random probing below half full, the free-cell index above
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoodBenchmark {
+    @Param({"0.1", "0.5", "0.9", "0.99"})
+    double fill;
+
+    private Fixtures.FoodFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load("BenchFood", Fixtures.FoodFixture.class);
+        fixture.setUp(512, 512, fill, 42);
+    }
+
+    @Benchmark
+    public boolean generateFood() {
+        return fixture.generateFood();
+    }
+}
@@ -0,0 +1,30 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// GamePanel.paintComponent() into an 800 x 800 offscreen image - frame time should follow the viewport, not the board
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+public class RenderBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    int size;
+
+    private Fixtures.RenderFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load("BenchRender", Fixtures.RenderFixture.class);
+        fixture.setUp(size, size, 800, 800);
+    }
+
+    @Benchmark
+    public int paint() {
+        return fixture.paint();
+    }
+}
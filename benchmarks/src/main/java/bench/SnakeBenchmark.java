@@ -0,0 +1,35 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Snake.move() and Snake.checkCrash() on a 512 x 512 board at several snake lengths - both should be flat in length
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeBenchmark {
+    @Param({"1", "1000", "100000"})
+    int length;
+
+    private Fixtures.SnakeFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load("BenchSnake", Fixtures.SnakeFixture.class);
+        fixture.setUp(512, 512, length);
+    }
+
+    @Benchmark
+    public int move() {
+        return fixture.move();
+    }
+
+    @Benchmark
+    public boolean checkCrash() {
+        return fixture.checkCrash();
+    }
+}
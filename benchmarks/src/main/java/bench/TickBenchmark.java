@@ -0,0 +1,30 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One full GameEngine.step() - direction, move or grow, food - the rule logic a game tick runs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private Fixtures.TickFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load("BenchTick", Fixtures.TickFixture.class);
+        fixture.setUp(size, size, 42);
+    }
+
+    @Benchmark
+    public int tick() {
+        return fixture.tick();
+    }
+}
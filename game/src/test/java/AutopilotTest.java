@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AutopilotTest {
+    private static final int GAMES = 40;
+    //a snake circling without a safe way to food plays on forever, stop it here
+    private static final long TICK_LIMIT = 20_000;
+    private static final int[] DIRECTIONS = {
+        GameEngine.DIRECTION_UP, GameEngine.DIRECTION_RIGHT,
+        GameEngine.DIRECTION_DOWN, GameEngine.DIRECTION_LEFT
+    };
+
+    @Test
+    void winsEveryGameOnBoardsWithACycle() {
+        for (int seed = 1; seed <= GAMES; seed++) {
+            GameEngine engine = new GameEngine(10, 10, new GameRandom(seed));
+            play(engine, new Autopilot());
+            assertTrue(engine.isWon(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void survivesOddBoards() {
+        assertSurvives(11, 11, seed -> new GameEngine(11, 11, new GameRandom(seed)));
+        assertSurvives(9, 13, seed -> new GameEngine(9, 13, new GameRandom(seed)));
+    }
+
+    @Test
+    void survivesOddWrappingLevels(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("wrap.level");
+        Level.save(file, 11, 11, 60, true, cell -> false);
+        Level level = Level.open(file);
+        assertSurvives(11, 11, seed -> new GameEngine(level, new GameRandom(seed)));
+    }
+
+    @Test
+    void winsAfterBeingSwitchedOnMidGame() {
+        for (int seed = 1; seed <= GAMES; seed++) {
+            GameEngine engine = new GameEngine(10, 10, new GameRandom(seed));
+            Autopilot autopilot = new Autopilot();
+            for (int i = 0; i < 30 && !engine.isGameOver(); i++) {
+                engine.step(autopilot.nextDirection(engine));
+            }
+            //steer by hand for a while, so the body no longer lies along the autopilot's cycle
+            Random hand = new Random(seed);
+            for (int i = 0; i < 60 && !engine.isGameOver(); i++) {
+                engine.step(safeTurn(engine, hand));
+            }
+            if (engine.isGameOver()) {
+                continue;
+            }
+            play(engine, autopilot);
+            assertTrue(engine.isWon(), "seed " + seed);
+        }
+    }
+
+    //a game ends in a crash at the very end at worst: an odd board has no cycle, so the last few cells may be
+    //out of reach, but the snake should fill most of it first and survive more often than not
+    private static void assertSurvives(int rows, int cols, IntFunction<GameEngine> games) {
+        int crashed = 0;
+        for (int seed = 1; seed <= GAMES; seed++) {
+            GameEngine engine = games.apply(seed);
+            play(engine, new Autopilot());
+            if (engine.isGameOver() && !engine.isWon()) {
+                crashed++;
+                assertTrue(engine.getSnake().getLength() >= rows * cols * 4 / 5,
+                           rows + " x " + cols + " seed " + seed + " crashed at length " + engine.getSnake().getLength());
+            }
+        }
+        assertTrue(crashed < GAMES / 2, rows + " x " + cols + ": " + crashed + " of " + GAMES + " crashed");
+    }
+
+    private static void play(GameEngine engine, Autopilot autopilot) {
+        for (long tick = 0; !engine.isGameOver() && tick < TICK_LIMIT; tick++) {
+            engine.step(autopilot.nextDirection(engine));
+        }
+    }
+
+    //random turn that does not end the game, if there is one
+    private static int safeTurn(GameEngine engine, Random random) {
+        int first = random.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            int direction = DIRECTIONS[(first + i) % 4];
+            if (direction != -engine.getDirection() && !engine.isFatal(direction)) {
+                return direction;
+            }
+        }
+        return engine.getDirection();
+    }
+}
@@ -0,0 +1,56 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class GameEngineTest {
+    @Test
+    void loadsWhatItSaved() {
+        GameEngine saved = played(1);
+        GameEngine loaded = played(2);
+        loaded.readFrom(ByteBuffer.wrap(state(saved)));
+        assertArrayEquals(state(saved), state(loaded));
+    }
+
+    @Test
+    void truncatedSaveLeavesTheGameUnchanged() {
+        byte[] save = state(played(1));
+        GameEngine engine = played(2);
+        byte[] before = state(engine);
+        for (int length = 0; length < save.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(save, 0, length);
+            assertThrows(IllegalArgumentException.class, () -> engine.readFrom(truncated), "length " + length);
+            assertArrayEquals(before, state(engine), "length " + length);
+        }
+    }
+
+    @Test
+    void saveWithCellsOffTheBoardLeavesTheGameUnchanged() {
+        byte[] save = state(played(1));
+        //the snake's head, just after its length
+        ByteBuffer.wrap(save).putInt(51, 20 * 20);
+        GameEngine engine = played(2);
+        byte[] before = state(engine);
+        assertThrows(IllegalArgumentException.class, () -> engine.readFrom(ByteBuffer.wrap(save)));
+        assertArrayEquals(before, state(engine));
+    }
+
+    //a game on a 20 x 20 board a few foods in, played by the autopilot
+    private static GameEngine played(long seed) {
+        GameEngine engine = new GameEngine(20, 20, new GameRandom(seed));
+        Autopilot autopilot = new Autopilot();
+        while (engine.getFruitsEaten() < 10) {
+            engine.step(autopilot.nextDirection(engine));
+        }
+        return engine;
+    }
+
+    private static byte[] state(GameEngine engine) {
+        ByteBuffer out = ByteBuffer.allocate(engine.getStateSize());
+        engine.writeTo(out);
+        byte[] bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,34 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LevelTest {
+    @Test
+    void countsItsWalls(@TempDir Path dir) throws IOException {
+        //a border round a 70 x 90 board, so the count spans whole and partial words of wall bits
+        Path file = dir.resolve("border.level");
+        Level.save(file, 70, 90, 35 * 90 + 45, false, cell -> isBorder(cell, 70, 90));
+        Level level = Level.open(file);
+        assertEquals(2 * 70 + 2 * 90 - 4, level.getWallCount());
+    }
+
+    @Test
+    void rejectsAWallCountThatDoesNotMatchTheMap(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("border.level");
+        Level.save(file, 70, 90, 35 * 90 + 45, false, cell -> isBorder(cell, 70, 90));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(18, 10);
+        assertThrows(IOException.class, () -> new Level(ByteBuffer.wrap(bytes)));
+    }
+
+    private static boolean isBorder(int cell, int rows, int cols) {
+        int row = cell / cols, col = cell % cols;
+        return row == 0 || col == 0 || row == rows - 1 || col == cols - 1;
+    }
+}
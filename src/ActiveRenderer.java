@@ -0,0 +1,166 @@
+// Opt-in active rendering: a render thread draws the GamePanel scene straight into a Canvas BufferStrategy and
+// flips it itself, instead of asking Swing to repaint and waiting for the RepaintManager to get round to it.
+// Frames are paced to a cap, or run back to back when uncapped for benchmarking. Frame-to-frame and present
+// times are kept in histograms to compare against the passive paintComponent path.
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+public class ActiveRenderer extends Canvas implements Runnable {
+    private static final long serialVersionUID = 1L;
+
+    //park until this close to the next frame, then spin, as in GameLoop
+    private static final long SPIN_NANOS = 200_000;
+    //the food pulse advances at the rate it does on the default 60 fps timer, whatever the frame rate
+    private static final long PULSE_NANOS = 1_000_000_000L / 60;
+    //while uncapped, how often the frame rate and histograms are printed and reset
+    private static final long REPORT_NANOS = 5_000_000_000L;
+
+    private final GamePanel scene;
+    private final int bufferCount;
+    //time per frame at the cap, 0 for uncapped
+    private final long frameNanos;
+    private final LatencyHistogram frameTimes = new LatencyHistogram("frame time");
+    private final LatencyHistogram presentTimes = new LatencyHistogram("present");
+    //the render thread currently allowed to draw, null when stopped
+    private final AtomicReference<Thread> thread = new AtomicReference<>();
+
+    //scene is drawn here and nowhere else while rendering runs, it is not added to any container.
+    //bufferCount is 2 for double or 3 for triple buffering, frameCap frames per second or 0 for uncapped
+    public ActiveRenderer(GamePanel scene, int bufferCount, int frameCap) {
+        this.scene = scene;
+        this.bufferCount = bufferCount;
+        this.frameNanos = frameCap > 0 ? 1_000_000_000L / frameCap : 0;
+        setPreferredSize(scene.getPreferredSize());
+        setBackground(Color.BLACK);
+        //the render thread draws everything, the AWT paint events would only flicker
+        setIgnoreRepaint(true);
+        setFocusable(true);
+    }
+
+    //start drawing; the scene belongs to the render thread until stop() returns
+    public void start() {
+        Thread renderer = new Thread(this, "render");
+        renderer.setDaemon(true);
+        if (thread.compareAndSet(null, renderer)) {
+            renderer.start();
+        }
+    }
+
+    //stop drawing and wait for the frame in progress
+    public void stop() {
+        Thread renderer = thread.getAndSet(null);
+        if (renderer == null) {
+            return;
+        }
+        LockSupport.unpark(renderer);
+        try {
+            renderer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() { return thread.get() != null; }
+
+    //time between presented frames
+    public LatencyHistogram getFrameTimes() { return frameTimes; }
+
+    //time spent in BufferStrategy.show() and the toolkit sync after it
+    public LatencyHistogram getPresentTimes() { return presentTimes; }
+
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        BufferStrategy strategy = null;
+        int strategyWidth = 0, strategyHeight = 0;
+        long nextFrame = System.nanoTime();
+        long lastPresent = 0;
+        long nextPulse = nextFrame + PULSE_NANOS;
+        long nextReport = nextFrame + REPORT_NANOS;
+        while (thread.get() == self) {
+            int width = getWidth(), height = getHeight();
+            if (width <= 0 || height <= 0 || !isDisplayable()) {
+                //not laid out yet
+                waitUntil(self, System.nanoTime() + 10_000_000);
+                continue;
+            }
+            if (strategy == null || width != strategyWidth || height != strategyHeight) {
+                createBufferStrategy(bufferCount);
+                strategy = getBufferStrategy();
+                strategyWidth = width;
+                strategyHeight = height;
+                scene.setSize(width, height);
+            }
+
+            long now = System.nanoTime();
+            while (now - nextPulse >= 0) {
+                scene.updateAnimations();
+                nextPulse += PULSE_NANOS;
+            }
+            scene.prepareFrame();
+
+            long presented;
+            do {
+                do {
+                    Graphics g = strategy.getDrawGraphics();
+                    //off the Swing event thread; Swing never paints the scene itself, it is in no container
+                    try {
+                        scene.paintComponent(g);
+                    } finally {
+                        g.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                long presentStart = System.nanoTime();
+                strategy.show();
+                //flush the pipeline so the frame is on screen now rather than whenever the toolkit batches it
+                Toolkit.getDefaultToolkit().sync();
+                presented = System.nanoTime();
+                presentTimes.record(presented - presentStart);
+                Telemetry.recordPresent(presented - presentStart);
+            } while (strategy.contentsLost());
+
+            if (lastPresent != 0) {
+                long interval = presented - lastPresent;
+                frameTimes.record(interval);
+                Telemetry.recordFrame(interval, frameNanos > 0 ? frameNanos : interval);
+            }
+            lastPresent = presented;
+
+            if (frameNanos > 0) {
+                nextFrame += frameNanos;
+                //more than a frame behind, start pacing again from now rather than rushing to catch up
+                if (presented - nextFrame > frameNanos) {
+                    nextFrame = presented;
+                }
+                waitUntil(self, nextFrame);
+            } else if (presented - nextReport >= 0) {
+                report();
+                nextReport = presented + REPORT_NANOS;
+            }
+        }
+    }
+
+    private void report() {
+        long frames = frameTimes.getCount();
+        System.err.printf("active rendering: %.0f frames/s%n  %s%n  %s%n",
+            frames * 1e9 / REPORT_NANOS, frameTimes, presentTimes);
+        frameTimes.reset();
+        presentTimes.reset();
+    }
+
+    //returns early if rendering is stopped, stop() unparks the thread
+    private void waitUntil(Thread self, long deadline) {
+        long nanos = deadline - System.nanoTime();
+        if (nanos > SPIN_NANOS) {
+            LockSupport.parkNanos(nanos - SPIN_NANOS);
+        }
+        while (System.nanoTime() - deadline < 0 && thread.get() == self) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+// Many snakes on one board, all moving every tick. Moves are decided and resolved in parallel over
+// horizontal bands of the board against one shared occupancy grid, and the outcome never depends on
+// thread timing:
+//  - leaving the board or moving onto any body cell (tails included, as in the single-snake game) kills a snake
+//  - two or more heads moving onto the same cell all die, which also covers head-on meetings
+// Dead snakes are cleared off the board and, while respawning is on, come back as a single cell somewhere free.
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+public class Arena {
+    //owner grid values besides snake id + 1
+    private static final int FREE = 0;
+    private static final int FOOD = -1;
+    //targets besides a board index
+    private static final int CRASH = -1;
+    private static final int IDLE = -2;
+    //random cells tried before giving up on placing food or a respawn this tick
+    private static final int PLACEMENT_TRIES = 64;
+
+    final int ROW_COUNT, COL_COUNT;
+    private final int snakeCount;
+    //snake id + 1 on each body cell, FOOD or FREE
+    private final int[] owner;
+    //heads moving onto each cell this tick
+    private final AtomicIntegerArray claims;
+
+    //per snake: body ring buffer head first, direction, this tick's target and whether it is food
+    private final int[][] bodies;
+    private final int[] headPos;
+    private final int[] lengths;
+    private final int[] directions;
+    private final int[] targets;
+    private final boolean[] eats;
+    private final boolean[] alive;
+    private final long[] foodEaten;
+    private final long[] deaths;
+    //GameRandom state per snake, so controllers on any thread draw the same numbers every run
+    private final long[] randomState;
+
+    private final GameRandom random;
+    private final ArenaController controller;
+    private final ForkJoinPool pool;
+    //live snakes bucketed by the band their head is in, rebuilt every tick
+    private final int bandCount, bandRows;
+    private final int[] bandStart;
+    private final int[] bandSnakes;
+    private final IntConsumer decideBand = this::decideBand;
+    private final IntConsumer resolveBand = this::resolveBand;
+
+    private final int foodCount;
+    private int foodOnBoard;
+    private boolean respawn = true;
+    private long ticks;
+
+    //pool runs the bands, or null to run them on the calling thread
+    public Arena(int rowCount, int colCount, int snakeCount, long seed, ArenaController controller, ForkJoinPool pool) {
+        ROW_COUNT = rowCount;
+        COL_COUNT = colCount;
+        this.snakeCount = snakeCount;
+        this.controller = controller;
+        this.pool = pool;
+        random = new GameRandom(seed);
+        owner = new int[rowCount * colCount];
+        claims = new AtomicIntegerArray(rowCount * colCount);
+
+        bodies = new int[snakeCount][4];
+        headPos = new int[snakeCount];
+        lengths = new int[snakeCount];
+        directions = new int[snakeCount];
+        targets = new int[snakeCount];
+        eats = new boolean[snakeCount];
+        alive = new boolean[snakeCount];
+        foodEaten = new long[snakeCount];
+        deaths = new long[snakeCount];
+        randomState = new long[snakeCount];
+        for (int s = 0; s < snakeCount; s++) {
+            randomState[s] = random.nextLong();
+        }
+
+        //a few bands per worker so uneven bands still balance
+        int workers = pool == null ? 1 : pool.getParallelism();
+        bandCount = Math.min(rowCount, workers == 1 ? 1 : workers * 4);
+        bandRows = (rowCount + bandCount - 1) / bandCount;
+        bandStart = new int[bandCount + 1];
+        bandSnakes = new int[snakeCount];
+
+        foodCount = Math.max(snakeCount, rowCount * colCount / GameEngine.CELLS_PER_FOOD);
+        for (int s = 0; s < snakeCount; s++) {
+            spawn(s);
+        }
+        placeFood();
+    }
+
+    //advance every snake by one tick
+    public void tick() {
+        ticks++;
+        bucketByBand();
+        runBands(decideBand);
+        runBands(resolveBand);
+
+        //claims are cleared, then food and the dead are put back, in snake order so runs repeat exactly
+        for (int s = 0; s < snakeCount; s++) {
+            int target = targets[s];
+            if (target >= 0) {
+                claims.set(target, 0);
+                if (alive[s] && eats[s]) {
+                    foodOnBoard--;
+                }
+            }
+        }
+        if (respawn) {
+            for (int s = 0; s < snakeCount; s++) {
+                if (!alive[s]) {
+                    spawn(s);
+                }
+            }
+        }
+        placeFood();
+    }
+
+    private void runBands(IntConsumer band) {
+        if (pool == null || bandCount == 1) {
+            for (int b = 0; b < bandCount; b++) {
+                band.accept(b);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, bandCount).parallel().forEach(band)).join();
+        }
+    }
+
+    //counting sort of live snakes by head band
+    private void bucketByBand() {
+        Arrays.fill(bandStart, 0);
+        for (int s = 0; s < snakeCount; s++) {
+            targets[s] = IDLE;
+            if (alive[s]) {
+                bandStart[bandOf(s) + 1]++;
+            }
+        }
+        for (int b = 0; b < bandCount; b++) {
+            bandStart[b + 1] += bandStart[b];
+        }
+        for (int s = 0; s < snakeCount; s++) {
+            if (alive[s]) {
+                bandSnakes[bandStart[bandOf(s)]++] = s;
+            }
+        }
+        for (int b = bandCount; b > 0; b--) {
+            bandStart[b] = bandStart[b - 1];
+        }
+        bandStart[0] = 0;
+    }
+
+    private int bandOf(int snake) { return getHead(snake) / COL_COUNT / bandRows; }
+
+    //phase one, read only on the grid: pick a direction and claim the cell ahead
+    private void decideBand(int band) {
+        for (int i = bandStart[band]; i < bandStart[band + 1]; i++) {
+            int s = bandSnakes[i];
+            int direction = controller.nextDirection(this, s);
+            //no 180 degree turns, as in the single-snake game
+            if (direction != GameEngine.DIRECTION_NONE && (lengths[s] == 1 || direction != -directions[s])) {
+                directions[s] = direction;
+            }
+            eats[s] = false;
+            if (directions[s] == GameEngine.DIRECTION_NONE) {
+                targets[s] = IDLE;
+                continue;
+            }
+            int target = getNextCell(getHead(s), directions[s]);
+            if (target < 0 || owner[target] > FREE) {
+                targets[s] = CRASH;
+                continue;
+            }
+            eats[s] = owner[target] == FOOD;
+            targets[s] = target;
+            claims.getAndIncrement(target);
+        }
+    }
+
+    //phase two: every cell written here belongs to exactly one snake - its own body, or a target nobody else won
+    private void resolveBand(int band) {
+        for (int i = bandStart[band]; i < bandStart[band + 1]; i++) {
+            int s = bandSnakes[i];
+            int target = targets[s];
+            if (target == IDLE) {
+                continue;
+            }
+            if (target == CRASH || claims.get(target) > 1) {
+                kill(s);
+            } else if (eats[s]) {
+                grow(s, target);
+                foodEaten[s]++;
+            } else {
+                move(s, target);
+            }
+        }
+    }
+
+    private void kill(int s) {
+        for (int i = 0; i < lengths[s]; i++) {
+            owner[getPart(s, i)] = FREE;
+        }
+        alive[s] = false;
+        deaths[s]++;
+    }
+
+    private void move(int s, int target) {
+        owner[getTail(s)] = FREE;
+        addHead(s, target);
+    }
+
+    private void grow(int s, int target) {
+        int[] body = bodies[s];
+        if (lengths[s] == body.length) {
+            //double the ring buffer, unrolling it so the head sits at slot 0 again
+            int[] expanded = new int[body.length << 1];
+            for (int i = 0; i < lengths[s]; i++) {
+                expanded[i] = getPart(s, i);
+            }
+            bodies[s] = expanded;
+            headPos[s] = 0;
+        }
+        lengths[s]++;
+        addHead(s, target);
+    }
+
+    private void addHead(int s, int target) {
+        headPos[s] = (headPos[s] - 1) & (bodies[s].length - 1);
+        bodies[s][headPos[s]] = target;
+        owner[target] = s + 1;
+    }
+
+    //single cell on a random free square, or stay dead until a later tick if none turns up
+    private void spawn(int s) {
+        for (int i = 0; i < PLACEMENT_TRIES; i++) {
+            int cell = random.nextInt(owner.length);
+            if (owner[cell] == FREE) {
+                owner[cell] = s + 1;
+                headPos[s] = 0;
+                bodies[s][0] = cell;
+                lengths[s] = 1;
+                directions[s] = GameEngine.DIRECTION_NONE;
+                alive[s] = true;
+                return;
+            }
+        }
+    }
+
+    private void placeFood() {
+        int tries = 0;
+        while (foodOnBoard < foodCount && tries++ < foodCount * PLACEMENT_TRIES) {
+            int cell = random.nextInt(owner.length);
+            if (owner[cell] == FREE) {
+                owner[cell] = FOOD;
+                foodOnBoard++;
+            }
+        }
+    }
+
+    //board index one step from cell, or -1 off the board
+    public int getNextCell(int cell, int direction) {
+        int row = cell / COL_COUNT;
+        int col = cell - row * COL_COUNT;
+        if (direction == GameEngine.DIRECTION_RIGHT) {
+            col++;
+        } else if (direction == GameEngine.DIRECTION_LEFT) {
+            col--;
+        } else if (direction == GameEngine.DIRECTION_UP) {
+            row--;
+        } else if (direction == GameEngine.DIRECTION_DOWN) {
+            row++;
+        }
+        if (row < 0 || row >= ROW_COUNT || col < 0 || col >= COL_COUNT) {
+            return -1;
+        }
+        return row * COL_COUNT + col;
+    }
+
+    //true if a head moving onto cell would die there, as of the start of the tick
+    public boolean isBlocked(int cell) { return cell < 0 || owner[cell] > FREE; }
+
+    public boolean isFood(int cell) { return owner[cell] == FOOD; }
+
+    //uniform in [0, bound) from the snake's own generator, for controllers
+    public int nextInt(int snake, int bound) {
+        long z = GameRandom.nextLong(randomState, snake);
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    //dead snakes stay off the board when false
+    public void setRespawn(boolean respawn) { this.respawn = respawn; }
+
+    public int getSnakeCount() { return snakeCount; }
+
+    public boolean isAlive(int snake) { return alive[snake]; }
+
+    public int getLength(int snake) { return lengths[snake]; }
+
+    public int getDirection(int snake) { return directions[snake]; }
+
+    //i = 0 is the head, i = getLength() - 1 the tail
+    public int getPart(int snake, int i) { return bodies[snake][(headPos[snake] + i) & (bodies[snake].length - 1)]; }
+
+    public int getHead(int snake) { return bodies[snake][headPos[snake]]; }
+
+    public int getTail(int snake) { return getPart(snake, lengths[snake] - 1); }
+
+    public long getFoodEaten(int snake) { return foodEaten[snake]; }
+
+    public long getDeaths(int snake) { return deaths[snake]; }
+
+    //snake id owning cell, or -1 if no snake is on it
+    public int getOwner(int cell) { return owner[cell] > FREE ? owner[cell] - 1 : -1; }
+
+    public int getFoodOnBoard() { return foodOnBoard; }
+
+    public long getTicks() { return ticks; }
+}
@@ -0,0 +1,5 @@
+// Steers one snake in an Arena. Called from the arena's worker threads while the board is read only,
+// so implementations must keep no shared mutable state and draw randomness from arena.nextInt(snake, bound)
+public interface ArenaController {
+    int nextDirection(Arena arena, int snake);
+}
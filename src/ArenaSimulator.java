@@ -0,0 +1,51 @@
+// Runs a headless multi-snake arena and prints tick throughput
+import java.util.concurrent.ForkJoinPool;
+
+public class ArenaSimulator {
+    // usage: java ArenaSimulator [snakes] [rows] [cols] [ticks] [threads] [seed]
+    public static void main(String[] args) {
+        int snakes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1L;
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            Arena arena = new Arena(rows, cols, snakes, seed, new ArenaWanderer(0.1), pool);
+            //let the JIT settle before timing, small arenas need more ticks for that
+            for (int i = 0; i < Math.max(ticks, 1_000_000 / snakes); i++) {
+                arena.tick();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                arena.tick();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long food = 0, deaths = 0, length = 0, longest = 0;
+            int alive = 0;
+            for (int s = 0; s < snakes; s++) {
+                food += arena.getFoodEaten(s);
+                deaths += arena.getDeaths(s);
+                if (arena.isAlive(s)) {
+                    alive++;
+                    length += arena.getLength(s);
+                    longest = Math.max(longest, arena.getLength(s));
+                }
+            }
+            System.out.printf("%d snakes on %dx%d with %d threads, %d ticks in %.3f s%n",
+                snakes, rows, cols, threads, ticks, seconds);
+            System.out.printf("throughput: %.0f ticks/s, %.0f snake moves/s, %.1f us/tick%n",
+                ticks / seconds, (double) ticks * snakes / seconds, seconds * 1e6 / ticks);
+            System.out.printf("food eaten %d, deaths %d, alive %d, mean length %.1f, longest %d%n",
+                food, deaths, alive, alive == 0 ? 0.0 : (double) length / alive, longest);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// Arena counterpart of RandomController - goes for food next to the head, otherwise keeps going
+// straight and turns at random onto a free cell when blocked or on a coin flip
+public class ArenaWanderer implements ArenaController {
+    private static final int[] DIRECTIONS = {
+        GameEngine.DIRECTION_UP, GameEngine.DIRECTION_RIGHT,
+        GameEngine.DIRECTION_DOWN, GameEngine.DIRECTION_LEFT
+    };
+    //out of 1024, the chance of turning while the way ahead is clear
+    private final int turnChance;
+
+    public ArenaWanderer(double turnChance) {
+        this.turnChance = (int) (turnChance * 1024);
+    }
+
+    @Override
+    public int nextDirection(Arena arena, int snake) {
+        int head = arena.getHead(snake);
+        int current = arena.getDirection(snake);
+        for (int direction : DIRECTIONS) {
+            int next = arena.getNextCell(head, direction);
+            if (direction != -current && next >= 0 && arena.isFood(next)) {
+                return direction;
+            }
+        }
+        if (current != GameEngine.DIRECTION_NONE && !arena.isBlocked(arena.getNextCell(head, current))
+                && arena.nextInt(snake, 1024) >= turnChance) {
+            return current;
+        }
+
+        //try the directions starting from a random one, skipping the reverse of the current heading
+        int start = arena.nextInt(snake, DIRECTIONS.length);
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            int direction = DIRECTIONS[(start + i) % DIRECTIONS.length];
+            if (direction != -current && !arena.isBlocked(arena.getNextCell(head, direction))) {
+                return direction;
+            }
+        }
+        //boxed in, any move ends this life
+        return current == GameEngine.DIRECTION_NONE ? DIRECTIONS[start] : current;
+    }
+}
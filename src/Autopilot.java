@@ -0,0 +1,492 @@
+// Pathfinding controller that works on primitive scratch arrays and allocates nothing per decision.
+// Where the board has a Hamiltonian cycle the snake follows it, cutting ahead along it towards food only while
+// the cells it skips cannot be needed, so it never dies. On boards without one (walls, odd by odd sizes), or while
+// the body is out of cycle order after the autopilot was switched on mid-game, it plans a BFS path to the nearest
+// food and only commits to it if the snake could still reach its own tail after eating, or failing that follows
+// its tail until it can.
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Autopilot implements Controller {
+    private static final int[] DIRECTIONS = {
+        GameEngine.DIRECTION_UP, GameEngine.DIRECTION_RIGHT,
+        GameEngine.DIRECTION_DOWN, GameEngine.DIRECTION_LEFT
+    };
+    //next cell along a Hamiltonian cycle, keyed by rows << 32 | cols; NO_CYCLE for sizes that have none
+    private static final ConcurrentHashMap<Long, int[]> CYCLES = new ConcurrentHashMap<>();
+    private static final int[] NO_CYCLE = new int[0];
+    //each cell's place along the cycle in CYCLES, under the same key
+    private static final ConcurrentHashMap<Long, int[]> CYCLE_POSITIONS = new ConcurrentHashMap<>();
+    //cells the snake keeps free ahead of its tail before cutting, for growing on the way plus a small buffer
+    private static final int CUT_MARGIN = 4;
+    //cutting stops once this fraction or less of the board is free, the snake then needs the whole cycle
+    private static final int CUT_FREE_DIVISOR = 2;
+
+    private int rowCount, colCount;
+    //game being played, for its moves across the edges of a wrapping level
+    private GameEngine engine;
+    private boolean wrap;
+    //board being planned on, for its walls, and the level it was laid out from
+    private Board board;
+    private Level level;
+    private int[] cycle;
+    private int[] cyclePosition;
+    //food the head is cutting towards along the cycle, -1 to pick one
+    private int target = -1;
+    //BFS scratch: a cell counts as marked in seen/blocked when it holds the current stamp
+    private int[] queue;
+    private int[] parent;
+    private int[] seen;
+    private int[] blocked;
+    private final int[] adjacent = new int[4];
+    private int stamp;
+    //planned route to food, followed from pathPos until it runs out
+    private int[] path;
+    private int pathLength;
+    private int pathPos;
+    private int expectedHead = -1;
+    //whether the body lay in cycle order when last checked, and the head and tick the cycle move was made for;
+    //the order only needs checking again if the snake was steered some other way in between
+    private boolean cycleOrdered;
+    private int cycleHead = -1;
+    private long cycleTicks = -1;
+
+    @Override
+    public int nextDirection(GameEngine engine) {
+        Board board = engine.getBoard();
+        Snake snake = engine.getSnake();
+        this.engine = engine;
+        ensureCapacity(board);
+        if (cycle != NO_CYCLE) {
+            return cycleDirection(engine, board, snake);
+        }
+        return planDirection(engine, board, snake);
+    }
+
+    //BFS to the nearest food when the snake could still reach its tail after eating it, otherwise follow the tail
+    //the long way round until such a path opens up, and only when even the tail is cut off take the roomiest move
+    private int planDirection(GameEngine engine, Board board, Snake snake) {
+        int head = snake.getHead();
+        //keep following the plan while nothing unexpected has happened; food that turned up on the way would make
+        //the snake longer than the plan was checked for
+        if (pathPos < pathLength && head == expectedHead && !snake.isOccupied(path[pathPos])
+            && (pathPos == pathLength - 1 || board.getCellType(path[pathPos]) != CellType.FOOD)) {
+            return follow(head);
+        }
+        pathLength = 0;
+
+        if (planPath(board, snake, -1) && tailReachableAfterPlan(snake)) {
+            return follow(head);
+        }
+        pathLength = 0;
+        int direction = followTail(engine, board, snake);
+        return direction != GameEngine.DIRECTION_NONE ? direction : roomiestMove(engine, board, snake);
+    }
+
+    //the body always lies in cycle order behind the head, so the cells from the head round to the tail are free.
+    //A move may skip ahead along the cycle by up to the cells that leaves spare, never past the target food,
+    //which keeps that order; otherwise it takes the next cell on the cycle
+    private int cycleDirection(GameEngine engine, Board board, Snake snake) {
+        int cellCount = cycle.length;
+        int head = snake.getHead();
+        int length = snake.getLength();
+        //switched on mid-game, or steered by something else, the body can lie any which way; plan around it
+        //until the head has led the body back into order
+        if (!cycleOrdered || head != cycleHead || engine.getTicks() != cycleTicks + 1) {
+            cycleOrdered = isInCycleOrder(snake);
+        }
+        if (!cycleOrdered) {
+            //the body falls into order once the head has run along the cycle for its length
+            int next = cycle[head];
+            int direction = directionTo(head, next);
+            if (!snake.isOccupied(next) && direction != -engine.getDirection()
+                && tailDistanceAfterMove(board, snake, next) > 0) {
+                pathLength = 0;
+                return direction;
+            }
+            return planDirection(engine, board, snake);
+        }
+        int toTail = length == 1 ? cellCount : cycleDistance(head, snake.getTail());
+        int free = cellCount - length - board.getFoodCount();
+        int cut = 0;
+        if (free * CUT_FREE_DIVISOR >= cellCount) {
+            if (target < 0 || board.getCellType(target) != CellType.FOOD) {
+                target = nearestFoodAhead(board, head);
+            }
+            int toFood = target < 0 ? cellCount : cycleDistance(head, target);
+            cut = toTail - CUT_MARGIN;
+            if (toFood < toTail) {
+                cut--;
+                //food far round from the tail on a crowded board, leave more room
+                if ((toTail - toFood) * 4 > free) {
+                    cut -= 10;
+                }
+            }
+            cut = Math.min(cut, Math.min(toFood, cellCount / 2));
+        }
+
+        int best = cycle[head];
+        int bestDistance = 1;
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(head, d);
+            if (next < 0 || snake.isOccupied(next) || DIRECTIONS[d] == -engine.getDirection()) {
+                continue;
+            }
+            int ahead = cycleDistance(head, next);
+            if (ahead > bestDistance && ahead <= cut) {
+                best = next;
+                bestDistance = ahead;
+            }
+        }
+        int direction = directionTo(head, best);
+        if (snake.isOccupied(best) || direction == -engine.getDirection()) {
+            cycleOrdered = false;
+            return planDirection(engine, board, snake);
+        }
+        cycleHead = best;
+        cycleTicks = engine.getTicks();
+        return direction;
+    }
+
+    //true if every part lies behind the one in front of it along the cycle, wrapping round it less than once
+    private boolean isInCycleOrder(Snake snake) {
+        long span = 0;
+        for (int i = 1; i < snake.getLength(); i++) {
+            span += cycleDistance(snake.getPart(i), snake.getPart(i - 1));
+        }
+        return span < cycle.length;
+    }
+
+    //food closest ahead of the head along the cycle, -1 if there is none
+    private int nearestFoodAhead(Board board, int head) {
+        int nearest = -1;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < board.getFoodCount(); i++) {
+            int food = board.getFood(i);
+            int distance = cycleDistance(head, food);
+            if (distance < nearestDistance) {
+                nearest = food;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    //steps along the cycle from one cell forward to another
+    private int cycleDistance(int from, int to) {
+        int distance = cyclePosition[to] - cyclePosition[from];
+        return distance < 0 ? distance + cycle.length : distance;
+    }
+
+    private int follow(int head) {
+        int next = path[pathPos++];
+        expectedHead = next;
+        return directionTo(head, next);
+    }
+
+    private void ensureCapacity(Board board) {
+        this.board = board;
+        if (board.ROW_COUNT == rowCount && board.COL_COUNT == colCount && board.getLevel() == level) {
+            return;
+        }
+        level = board.getLevel();
+        wrap = level != null && level.isWrap();
+        rowCount = board.ROW_COUNT;
+        colCount = board.COL_COUNT;
+        int cells = rowCount * colCount;
+        queue = new int[cells];
+        parent = new int[cells];
+        seen = new int[cells];
+        blocked = new int[cells];
+        path = new int[cells];
+        stamp = 0;
+        pathLength = 0;
+        target = -1;
+        //the cycle covers every cell, so it would run into any walls
+        long size = ((long) rowCount << 32) | colCount;
+        cycle = level != null && level.getWallCount() > 0 ? NO_CYCLE
+              : CYCLES.computeIfAbsent(size, key -> buildCycle(rowCount, colCount));
+        cyclePosition = cycle == NO_CYCLE ? NO_CYCLE : CYCLE_POSITIONS.computeIfAbsent(size, key -> positionsOf(cycle));
+    }
+
+    private int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(blocked, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    //BFS from the head over free cells to target, or to the nearest food if target is -1;
+    //fills path head-exclusive, target-inclusive
+    private boolean planPath(Board board, Snake snake, int target) {
+        int mark = nextStamp();
+        int head = snake.getHead();
+        int read = 0, write = 0;
+        queue[write++] = head;
+        seen[head] = mark;
+
+        while (read < write) {
+            int cell = queue[read++];
+            int count = fillAdjacent(cell);
+            for (int k = 0; k < count; k++) {
+                int next = adjacent[k];
+                if (seen[next] == mark) {
+                    continue;
+                }
+                if (next == target) {
+                    //stepping straight from the head onto the tail is a crash, it has not moved yet
+                    if (cell == head) {
+                        continue;
+                    }
+                } else if (snake.isOccupied(next)) {
+                    continue;
+                }
+                seen[next] = mark;
+                parent[next] = cell;
+                if (target < 0 ? board.getCellType(next) == CellType.FOOD : next == target) {
+                    int length = 0;
+                    for (int c = next; c != head; c = parent[c]) {
+                        length++;
+                    }
+                    int i = length;
+                    for (int c = next; c != head; c = parent[c]) {
+                        path[--i] = c;
+                    }
+                    pathLength = length;
+                    pathPos = 0;
+                    expectedHead = head;
+                    return true;
+                }
+                queue[write++] = next;
+            }
+        }
+        return false;
+    }
+
+    //lay the snake along the planned path as it would be just after eating, then check its head can reach its tail.
+    //It is laid one part longer than that, in case the next food turns up on the way and the tail stays put again
+    private boolean tailReachableAfterPlan(Snake snake) {
+        int mark = nextStamp();
+        int newLength = Math.min(snake.getLength() + 2, snake.getLength() + pathLength);
+        //newest parts first: the path backwards from the food, then the old body from its head for what is left
+        int tail = -1;
+        for (int i = 0; i < newLength; i++) {
+            tail = i < pathLength ? path[pathLength - 1 - i] : snake.getPart(i - pathLength);
+            blocked[tail] = mark;
+        }
+        return distanceToTail(path[pathLength - 1], tail, mark) > 0;
+    }
+
+    //the safe move whose head is furthest from the tail, so the snake coils loosely behind it while it waits for a
+    //safe way to food, or DIRECTION_NONE if every move would shut the head off from the tail
+    private int followTail(GameEngine engine, Board board, Snake snake) {
+        int head = snake.getHead();
+        int best = GameEngine.DIRECTION_NONE;
+        int bestDistance = 0;
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(head, d);
+            if (next < 0 || snake.isOccupied(next) || DIRECTIONS[d] == -engine.getDirection()) {
+                continue;
+            }
+            int distance = tailDistanceAfterMove(board, snake, next);
+            if (distance > bestDistance) {
+                best = DIRECTIONS[d];
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    //steps from the head to the tail once the head has moved to the free cell next, -1 if it would be cut off
+    private int tailDistanceAfterMove(Board board, Snake snake, int next) {
+        //the body one tick on: it keeps its tail if next is food, otherwise drops it
+        int mark = nextStamp();
+        int kept = board.getCellType(next) == CellType.FOOD ? snake.getLength() : snake.getLength() - 1;
+        blocked[next] = mark;
+        for (int i = 0; i < kept; i++) {
+            blocked[snake.getPart(i)] = mark;
+        }
+        int tail = kept == 0 ? next : snake.getPart(kept - 1);
+        return tail == next ? Integer.MAX_VALUE : distanceToTail(next, tail, mark);
+    }
+
+    //steps from head to tail over cells not blocked with mark, or -1 if it cannot get there.
+    //The tail moves away next tick, so it is the one body cell that counts as reachable, but not straight from
+    //the head: that step would be a crash
+    private int distanceToTail(int head, int tail, int mark) {
+        int seenMark = nextStamp();
+        int read = 0, write = 0;
+        queue[write++] = head;
+        seen[head] = seenMark;
+        parent[head] = head;
+        while (read < write) {
+            int cell = queue[read++];
+            int count = fillAdjacent(cell);
+            for (int k = 0; k < count; k++) {
+                int next = adjacent[k];
+                if (next == tail && cell != head) {
+                    int distance = 1;
+                    for (int c = cell; c != head; c = parent[c]) {
+                        distance++;
+                    }
+                    return distance;
+                }
+                if (seen[next] == seenMark || blocked[next] == mark) {
+                    continue;
+                }
+                seen[next] = seenMark;
+                parent[next] = cell;
+                queue[write++] = next;
+            }
+        }
+        return -1;
+    }
+
+    //last resort: the non-fatal move with the most free cells reachable behind it
+    private int roomiestMove(GameEngine engine, Board board, Snake snake) {
+        int head = snake.getHead();
+        int best = engine.getDirection() == GameEngine.DIRECTION_NONE ? DIRECTIONS[0] : engine.getDirection();
+        int bestRoom = -1;
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(head, d);
+            if (next < 0 || snake.isOccupied(next) || DIRECTIONS[d] == -engine.getDirection()) {
+                continue;
+            }
+            int room = floodCount(snake, next);
+            if (room > bestRoom) {
+                bestRoom = room;
+                best = DIRECTIONS[d];
+            }
+        }
+        return best;
+    }
+
+    private int floodCount(Snake snake, int start) {
+        int mark = nextStamp();
+        int read = 0, write = 0;
+        queue[write++] = start;
+        seen[start] = mark;
+        while (read < write) {
+            int cell = queue[read++];
+            int count = fillAdjacent(cell);
+            for (int k = 0; k < count; k++) {
+                int next = adjacent[k];
+                if (seen[next] != mark && !snake.isOccupied(next)) {
+                    seen[next] = mark;
+                    queue[write++] = next;
+                }
+            }
+        }
+        return write;
+    }
+
+    //neighbours of cell that are not walls into adjacent, returns how many there are
+    private int fillAdjacent(int cell) {
+        int count = 0;
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(cell, d);
+            if (next >= 0) {
+                adjacent[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    //neighbour of cell in DIRECTIONS[d], or -1 off the board or on a wall. On a wrapping level the engine works
+    //out the cell across the edge
+    private int neighbour(int cell, int d) {
+        int next;
+        if (wrap) {
+            next = engine.getNextCell(cell, DIRECTIONS[d]);
+        } else {
+            int col = cell % colCount;
+            switch (d) {
+                case 0:
+                    next = cell >= colCount ? cell - colCount : -1;
+                    break;
+                case 1:
+                    next = col + 1 < colCount ? cell + 1 : -1;
+                    break;
+                case 2:
+                    next = cell + colCount < rowCount * colCount ? cell + colCount : -1;
+                    break;
+                default:
+                    next = col > 0 ? cell - 1 : -1;
+                    break;
+            }
+        }
+        return next >= 0 && board.isWall(next) ? -1 : next;
+    }
+
+    //the move from a cell to a neighbour of it, which may be across a wrapping edge
+    private int directionTo(int from, int to) {
+        if (wrap) {
+            for (int d = 0; d < 4; d++) {
+                if (engine.getNextCell(from, DIRECTIONS[d]) == to) {
+                    return DIRECTIONS[d];
+                }
+            }
+        }
+        if (to == from + 1) {
+            return GameEngine.DIRECTION_RIGHT;
+        } else if (to == from - 1) {
+            return GameEngine.DIRECTION_LEFT;
+        } else if (to < from) {
+            return GameEngine.DIRECTION_UP;
+        }
+        return GameEngine.DIRECTION_DOWN;
+    }
+
+    //place of each cell along cycle, counted from cell 0
+    private static int[] positionsOf(int[] cycle) {
+        int[] positions = new int[cycle.length];
+        int cell = 0;
+        for (int i = 0; i < cycle.length; i++) {
+            positions[cell] = i;
+            cell = cycle[cell];
+        }
+        return positions;
+    }
+
+    //cycle along row 0, snaking back and forth through columns 1.. on every row and returning up column 0;
+    //needs an even number of rows (or columns, by transposing) and at least two of each
+    static int[] buildCycle(int rows, int cols) {
+        if (rows < 2 || cols < 2 || (rows % 2 != 0 && cols % 2 != 0)) {
+            return NO_CYCLE;
+        }
+        boolean transpose = rows % 2 != 0;
+        int r = transpose ? cols : rows;
+        int c = transpose ? rows : cols;
+
+        int[] order = new int[r * c];
+        int n = 0;
+        for (int row = 0; row < r; row++) {
+            if (row % 2 == 0) {
+                for (int col = 1; col < c; col++) {
+                    order[n++] = row * c + col;
+                }
+            } else {
+                for (int col = c - 1; col >= 1; col--) {
+                    order[n++] = row * c + col;
+                }
+            }
+        }
+        for (int row = r - 1; row >= 0; row--) {
+            order[n++] = row * c;
+        }
+
+        int[] next = new int[r * c];
+        for (int i = 0; i < order.length; i++) {
+            int from = order[i];
+            int to = order[(i + 1) % order.length];
+            if (transpose) {
+                from = (from % c) * cols + from / c;
+                to = (to % c) * cols + to / c;
+            }
+            next[from] = to;
+        }
+        return next;
+    }
+}
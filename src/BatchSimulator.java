@@ -0,0 +1,120 @@
+// Runs many independent seeded games headlessly across all cores and aggregates the results
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+public class BatchSimulator {
+    public enum Outcome {
+        WALL,
+        SELF,
+        WON,
+        TICK_LIMIT;
+    }
+
+    private final int rowCount, colCount;
+    private final long maxTicks;
+    private final LongFunction<Controller> controllerFactory;
+
+    //striped counters - each worker thread mostly hits its own cell, so there is no shared lock
+    private final LongAdder games = new LongAdder();
+    private final LongAdder totalScore = new LongAdder();
+    private final LongAdder totalTicks = new LongAdder();
+    private final LongAccumulator bestScore = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator longestGame = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+    //controllerFactory builds the strategy for each game from that game's seed
+    public BatchSimulator(int rowCount, int colCount, long maxTicks, LongFunction<Controller> controllerFactory) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.maxTicks = maxTicks;
+        this.controllerFactory = controllerFactory;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    //run gameCount games seeded baseSeed, baseSeed + 1, ... on a pool of the given size
+    public void run(int gameCount, long baseSeed, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, gameCount).parallel()
+                                       .forEach(i -> playGame(baseSeed + i))).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //play one game to the end and fold its result into the totals
+    public Outcome playGame(long seed) {
+        GameEngine engine = new GameEngine(rowCount, colCount, new GameRandom(seed));
+        Controller controller = controllerFactory.apply(seed);
+
+        TickResult result = TickResult.IDLE;
+        //counted per step rather than by engine ticks, which skip idle steps, so a controller that never moves
+        //still ends at the limit
+        for (long step = 0; !engine.isGameOver() && step < maxTicks; step++) {
+            result = engine.step(controller.nextDirection(engine));
+        }
+
+        Outcome outcome;
+        if (result == TickResult.WON) {
+            outcome = Outcome.WON;
+        } else if (!engine.isGameOver()) {
+            outcome = Outcome.TICK_LIMIT;
+        } else {
+            outcome = engine.isHitWall() ? Outcome.WALL : Outcome.SELF;
+        }
+
+        games.increment();
+        totalScore.add(engine.getFruitsEaten());
+        totalTicks.add(engine.getTicks());
+        bestScore.accumulate(engine.getFruitsEaten());
+        longestGame.accumulate(engine.getTicks());
+        outcomes[outcome.ordinal()].increment();
+        return outcome;
+    }
+
+    public long getGames() { return games.sum(); }
+
+    public long getTotalScore() { return totalScore.sum(); }
+
+    public long getTotalTicks() { return totalTicks.sum(); }
+
+    public long getBestScore() { return bestScore.get(); }
+
+    public long getLongestGame() { return longestGame.get(); }
+
+    public long getOutcomeCount(Outcome outcome) { return outcomes[outcome.ordinal()].sum(); }
+
+    // usage: java BatchSimulator [games] [rows] [cols] [seed] [threads] [random|autopilot]
+    public static void main(String[] args) {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        boolean autopilot = args.length > 5 && args[5].equals("autopilot");
+
+        BatchSimulator simulator = new BatchSimulator(rows, cols, 1_000_000L,
+            gameSeed -> autopilot ? new Autopilot() : new RandomController(new SplittableRandom(~gameSeed), 0.1));
+
+        long start = System.nanoTime();
+        simulator.run(gameCount, seed, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long games = simulator.getGames();
+        long ticks = simulator.getTotalTicks();
+        System.out.printf("%d games on %dx%d with %d threads in %.3f s%n", games, rows, cols, threads, seconds);
+        System.out.printf("throughput: %.0f games/s, %.0f ticks/s%n", games / seconds, ticks / seconds);
+        System.out.printf("score: mean %.2f, best %d; ticks: mean %.1f, longest %d%n",
+            (double) simulator.getTotalScore() / games, simulator.getBestScore(),
+            (double) ticks / games, simulator.getLongestGame());
+        for (Outcome outcome : Outcome.values()) {
+            System.out.printf("  %-10s %d%n", outcome, simulator.getOutcomeCount(outcome));
+        }
+    }
+}
@@ -1,47 +1,311 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+//board state packed one byte per cell (CellType ordinal), indexed by row * COL_COUNT + col.
+//Cells and the free-cell index live in fixed-size pages that a fork() shares until either side writes to them.
 public class Board {
+    private static final CellType[] CELL_TYPES = CellType.values();
+    private static final byte EMPTY = (byte) CellType.EMPTY.ordinal();
+    private static final byte FOOD = (byte) CellType.FOOD.ordinal();
+    private static final byte WALL = (byte) CellType.WALL.ordinal();
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
     final int ROW_COUNT, COL_COUNT;
-    private Cell[][] cells;
+    private final int cellCount;
+    //on a level board a null page has not been read yet and is taken from the level on first use
+    private final byte[][] cells;
+    //false for a page still shared with a fork, copied before the first write
+    private final boolean[] ownCells;
+    private int freeCount;
+    //swap-remove index of EMPTY cells, only built once the board gets crowded and kept for reuse after clear()
+    private boolean freeIndexed;
+    private int[][] freeCells;
+    private int[][] freeSlot;
+    private boolean[] ownFreeCells;
+    private boolean[] ownFreeSlot;
+    private final CellSet food;
+    //walls every clear() puts back, or null for an open board
+    private final Level level;
+    //cells changed since the last clearDirty(), for renderers that only repaint what moved
+    private final int[] dirtyCells = new int[64];
+    private int dirtyCount;
+    private boolean dirtyOverflow;
 
     public Board(int rowCount, int columnCount) {
         ROW_COUNT = rowCount;
         COL_COUNT = columnCount;
+        cellCount = ROW_COUNT * COL_COUNT;
 
-        cells = new Cell[ROW_COUNT][COL_COUNT];
-        for (int row = 0; row < ROW_COUNT; row++) {
-            for (int column = 0; column < COL_COUNT; column++) {
-                cells[row][column] = new Cell(row, column);
-            }
+        //zero is CellType.EMPTY, so fresh pages are already an empty board
+        int pages = (cellCount + PAGE_MASK) >>> PAGE_SHIFT;
+        cells = new byte[pages][PAGE_SIZE];
+        ownCells = new boolean[pages];
+        Arrays.fill(ownCells, true);
+        freeCount = cellCount;
+        food = new CellSet();
+        level = null;
+    }
+
+    //board laid out as level, taking each of the level's pages on first use and copying it only once it is written
+    public Board(Level level) {
+        ROW_COUNT = level.ROW_COUNT;
+        COL_COUNT = level.COL_COUNT;
+        cellCount = ROW_COUNT * COL_COUNT;
+        this.level = level;
+
+        int pages = (cellCount + PAGE_MASK) >>> PAGE_SHIFT;
+        cells = new byte[pages][];
+        ownCells = new boolean[pages];
+        freeCount = cellCount - level.getWallCount();
+        food = new CellSet();
+    }
+
+    //copy of other that shares its pages, the dirty log starts empty
+    private Board(Board other) {
+        ROW_COUNT = other.ROW_COUNT;
+        COL_COUNT = other.COL_COUNT;
+        cellCount = other.cellCount;
+        cells = other.cells.clone();
+        ownCells = new boolean[cells.length];
+        freeCount = other.freeCount;
+        freeIndexed = other.freeIndexed;
+        if (other.freeCells != null) {
+            freeCells = other.freeCells.clone();
+            freeSlot = other.freeSlot.clone();
+            ownFreeCells = new boolean[freeCells.length];
+            ownFreeSlot = new boolean[freeSlot.length];
         }
+        food = other.food.copy();
+        level = other.level;
     }
 
-    public Cell[][] getCells() { return cells; }
+    //independent board in the same state, cheap because pages are only copied once one side changes them
+    public Board fork() {
+        //both sides now share every page
+        Arrays.fill(ownCells, false);
+        if (freeCells != null) {
+            Arrays.fill(ownFreeCells, false);
+            Arrays.fill(ownFreeSlot, false);
+        }
+        return new Board(this);
+    }
 
-    public void setCells(Cell[][] cells) {
-        this.cells = cells;
+    public int index(int row, int col) { return row * COL_COUNT + col; }
+
+    public int rowOf(int index) { return index / COL_COUNT; }
+
+    public int colOf(int index) { return index % COL_COUNT; }
+
+    public CellType getCellType(int index) { return CELL_TYPES[cell(index)]; }
+
+    public CellType getCellType(int row, int col) { return getCellType(index(row, col)); }
+
+    public boolean isWall(int index) { return cell(index) == WALL; }
+
+    public Level getLevel() { return level; }
+
+    private byte cell(int index) { return readableCells(index >>> PAGE_SHIFT)[index & PAGE_MASK]; }
+
+    public void setCellType(int index, CellType cellType) {
+        byte oldType = cell(index);
+        byte newType = (byte) cellType.ordinal();
+        if (oldType == newType) {
+            return;
+        }
+        writableCells(index >>> PAGE_SHIFT)[index & PAGE_MASK] = newType;
+
+        if (dirtyCount < dirtyCells.length) {
+            dirtyCells[dirtyCount++] = index;
+        } else {
+            dirtyOverflow = true;
+        }
+
+        if (oldType == FOOD) {
+            food.remove(index);
+        } else if (newType == FOOD) {
+            food.add(index);
+        }
+
+        if (oldType == EMPTY) {
+            if (freeIndexed) {
+                removeFree(index);
+            }
+            freeCount--;
+        } else if (newType == EMPTY) {
+            if (freeIndexed) {
+                addFree(index);
+            }
+            freeCount++;
+        }
     }
 
-    public void generateFood(Snake snake) {
-        java.util.List<Cell> snakeCells = snake.getSnakePartList();
-        
-        boolean validPositionFound = false;
-        int row, col;
-        
-        while (!validPositionFound) {
-            row = (int)(Math.random() * ROW_COUNT);
-            col = (int)(Math.random() * COL_COUNT);
-            
-            boolean conflict = false;
-            for (Cell snakePart : snakeCells) {
-                if (snakePart.getRow() == row && snakePart.getCol() == col) {
-                    conflict = true;
-                    break;
+    public void setCellType(int row, int col, CellType cellType) { setCellType(index(row, col), cellType); }
+
+    //empty every cell but the level's walls in place, the whole board counts as changed
+    public void clear() {
+        for (int page = 0; page < cells.length; page++) {
+            if (level != null) {
+                //a page already copied is reused, others are taken from the level again when next read
+                if (ownCells[page]) {
+                    System.arraycopy(level.getPage(page), 0, cells[page], 0, PAGE_SIZE);
+                } else {
+                    cells[page] = null;
                 }
+            } else if (ownCells[page]) {
+                Arrays.fill(cells[page], EMPTY);
+            } else {
+                cells[page] = new byte[PAGE_SIZE];
+                ownCells[page] = true;
             }
-            
-            if (!conflict) {
-                cells[row][col].setCellType(CellType.FOOD);
-                validPositionFound = true;
+        }
+        freeCount = level != null ? cellCount - level.getWallCount() : cellCount;
+        freeIndexed = false;
+        food.clear();
+        dirtyCount = 0;
+        dirtyOverflow = true;
+    }
+
+    //flyweight view over a single square, nothing is stored per cell
+    public Cell getCell(int row, int col) { return new Cell(this, row, col); }
+
+    public int getFreeCount() { return freeCount; }
+
+    public int getFoodCount() { return food.size(); }
+
+    //board index of the i-th food item, 0 <= i < getFoodCount()
+    public int getFood(int i) { return food.get(i); }
+
+    public int getDirtyCount() { return dirtyCount; }
+
+    public int getDirtyCell(int i) { return dirtyCells[i]; }
+
+    //true if more cells changed than the log holds, treat the whole board as changed
+    public boolean isDirtyOverflow() { return dirtyOverflow; }
+
+    public void clearDirty() {
+        dirtyCount = 0;
+        dirtyOverflow = false;
+    }
+
+    //true once food placement draws from the free-cell index rather than random probing
+    public boolean isFreeIndexed() { return freeIndexed; }
+
+    //i-th entry of the free-cell index, 0 <= i < getFreeCount(), only while isFreeIndexed()
+    public int getFreeCell(int i) { return freeCells[i >>> PAGE_SHIFT][i & PAGE_MASK]; }
+
+    //place food on a random empty cell, returns false if the board is full
+    public boolean generateFood(RandomGenerator random) {
+        if (freeCount == 0) {
+            return false;
+        }
+
+        int index;
+        if (!freeIndexed) {
+            //while at least half the board is free a random pick takes under two tries on average
+            if (freeCount * 2L >= cellCount) {
+                do {
+                    index = random.nextInt(cellCount);
+                } while (cell(index) != EMPTY);
+                setCellType(index, CellType.FOOD);
+                return true;
+            }
+            buildFreeIndex();
+        }
+
+        index = getFreeCell(random.nextInt(freeCount));
+        setCellType(index, CellType.FOOD);
+        return true;
+    }
+
+    private void buildFreeIndex() {
+        if (freeCells == null) {
+            allocateFreeIndex();
+        }
+        int count = 0;
+        for (int index = 0; index < cellCount; index++) {
+            if (cell(index) == EMPTY) {
+                setFreeSlot(index, count);
+                setFreeCell(count++, index);
+            } else {
+                setFreeSlot(index, -1);
             }
         }
+        freeIndexed = true;
+    }
+
+    //use the free index in exactly this order, so a restored board places food like the one that was saved
+    public void restoreFreeIndex(int[] order, int count) {
+        if (freeCells == null) {
+            allocateFreeIndex();
+        }
+        for (int index = 0; index < cellCount; index++) {
+            setFreeSlot(index, -1);
+        }
+        for (int i = 0; i < count; i++) {
+            setFreeSlot(order[i], i);
+            setFreeCell(i, order[i]);
+        }
+        freeIndexed = true;
+    }
+
+    private void addFree(int index) {
+        setFreeSlot(index, freeCount);
+        setFreeCell(freeCount, index);
+    }
+
+    //move the last free cell into the vacated slot
+    private void removeFree(int index) {
+        int slot = freeSlot[index >>> PAGE_SHIFT][index & PAGE_MASK];
+        int last = getFreeCell(freeCount - 1);
+        setFreeCell(slot, last);
+        setFreeSlot(last, slot);
+        setFreeSlot(index, -1);
+    }
+
+    private void setFreeCell(int i, int index) {
+        int page = i >>> PAGE_SHIFT;
+        if (!ownFreeCells[page]) {
+            freeCells[page] = freeCells[page].clone();
+            ownFreeCells[page] = true;
+        }
+        freeCells[page][i & PAGE_MASK] = index;
+    }
+
+    private void setFreeSlot(int index, int slot) {
+        int page = index >>> PAGE_SHIFT;
+        if (!ownFreeSlot[page]) {
+            freeSlot[page] = freeSlot[page].clone();
+            ownFreeSlot[page] = true;
+        }
+        freeSlot[page][index & PAGE_MASK] = slot;
+    }
+
+    private void allocateFreeIndex() {
+        int pages = cells.length;
+        freeCells = new int[pages][PAGE_SIZE];
+        freeSlot = new int[pages][PAGE_SIZE];
+        ownFreeCells = new boolean[pages];
+        ownFreeSlot = new boolean[pages];
+        Arrays.fill(ownFreeCells, true);
+        Arrays.fill(ownFreeSlot, true);
+    }
+
+    private byte[] readableCells(int page) {
+        byte[] pageCells = cells[page];
+        if (pageCells == null) {
+            pageCells = level.getPage(page);
+            cells[page] = pageCells;
+        }
+        return pageCells;
+    }
+
+    private byte[] writableCells(int page) {
+        if (!ownCells[page]) {
+            cells[page] = readableCells(page).clone();
+            ownCells[page] = true;
+        }
+        return cells[page];
     }
 }
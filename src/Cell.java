@@ -1,22 +1,34 @@
-//represent a cell of display board
+//represent a cell of display board - a lightweight view, the state itself lives in Board
 public class Cell {
+    private final Board board;
     private final int row, col;
-    private CellType cellType;
 
     //constructor
-    public Cell(int row, int col) {
+    public Cell(Board board, int row, int col) {
+        this.board = board;
         this.row = row;
         this.col = col;
-        this.cellType = CellType.EMPTY;
     }
 
-    public CellType getCellType() { return cellType; }
+    public CellType getCellType() { return board.getCellType(row, col); }
 
     public void setCellType(CellType cellType) {
-        this.cellType = cellType;
+        board.setCellType(row, col, cellType);
     }
 
     public int getRow() { return row; }
 
     public int getCol() { return col; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Cell)) {
+            return false;
+        }
+        Cell other = (Cell) o;
+        return board == other.board && row == other.row && col == other.col;
+    }
+
+    @Override
+    public int hashCode() { return board.index(row, col); }
 }
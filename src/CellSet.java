@@ -0,0 +1,114 @@
+// Set of board indices with O(1) add, remove and contains plus dense iteration by position.
+// Sized by the number of members rather than the board, so it suits sparse things like food.
+import java.util.Arrays;
+
+public class CellSet {
+    private int[] members = new int[8];
+    private int size;
+    //open addressing table of member + 1 (0 marks a free bucket) and that member's position in members
+    private int[] keys = new int[16];
+    private int[] positions = new int[16];
+
+    public int size() { return size; }
+
+    //i-th member, 0 <= i < size(); order changes as members are removed
+    public int get(int i) { return members[i]; }
+
+    public boolean contains(int cell) { return find(cell) >= 0; }
+
+    public boolean add(int cell) {
+        if (find(cell) >= 0) {
+            return false;
+        }
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size << 1);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        members[size] = cell;
+        insert(cell, size);
+        size++;
+        return true;
+    }
+
+    //swap the last member into the removed member's position
+    public boolean remove(int cell) {
+        int bucket = find(cell);
+        if (bucket < 0) {
+            return false;
+        }
+        int position = positions[bucket];
+        deleteBucket(bucket);
+        size--;
+        if (position != size) {
+            int last = members[size];
+            members[position] = last;
+            positions[find(last)] = position;
+        }
+        return true;
+    }
+
+    //independent set with the same members in the same order
+    public CellSet copy() {
+        CellSet copy = new CellSet();
+        copy.members = members.clone();
+        copy.size = size;
+        copy.keys = keys.clone();
+        copy.positions = positions.clone();
+        return copy;
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(keys, 0);
+    }
+
+    private int find(int cell) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(cell) & mask; keys[bucket] != 0; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == cell + 1) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int cell, int position) {
+        int mask = keys.length - 1;
+        int bucket = hash(cell) & mask;
+        while (keys[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        keys[bucket] = cell + 1;
+        positions[bucket] = position;
+    }
+
+    //backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void deleteBucket(int bucket) {
+        int mask = keys.length - 1;
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = hash(keys[next] - 1) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                positions[hole] = positions[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        keys = new int[capacity];
+        positions = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(members[i], i);
+        }
+    }
+
+    private static int hash(int cell) {
+        int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,5 +2,6 @@
 public enum CellType {
     EMPTY,
     FOOD,
-    SNAKE_NODE;
+    SNAKE_NODE,
+    WALL;
 }
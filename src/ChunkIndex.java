@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+// Board indices bucketed by 32 x 32 cell chunk, so a viewport can find the items inside it
+// without scanning all of them. Rebuilt from scratch with a counting sort, nothing is allocated once warm.
+public class ChunkIndex {
+    public static final int CHUNK_SHIFT = 5;
+
+    private int colCount;
+    private int chunkRows, chunkCols;
+    //items of chunk c are cells[start[c]] up to cells[start[c + 1]]
+    private int[] start = new int[2];
+    private int[] cells = new int[16];
+
+    //index source[from] up to source[to] on a rowCount x colCount board
+    public void build(int[] source, int from, int to, int rowCount, int colCount) {
+        this.colCount = colCount;
+        chunkRows = ((rowCount - 1) >> CHUNK_SHIFT) + 1;
+        chunkCols = ((colCount - 1) >> CHUNK_SHIFT) + 1;
+        int chunks = chunkRows * chunkCols;
+        if (start.length < chunks + 1) {
+            start = new int[chunks + 1];
+        } else {
+            Arrays.fill(start, 0, chunks + 1, 0);
+        }
+        int count = Math.max(0, to - from);
+        if (cells.length < count) {
+            cells = new int[Math.max(count, cells.length << 1)];
+        }
+
+        for (int i = from; i < to; i++) {
+            start[chunkOf(source[i]) + 1]++;
+        }
+        for (int c = 0; c < chunks; c++) {
+            start[c + 1] += start[c];
+        }
+        //fill each chunk using its start as a cursor, which leaves start[c] at the end of chunk c
+        for (int i = from; i < to; i++) {
+            cells[start[chunkOf(source[i])]++] = source[i];
+        }
+        for (int c = chunks; c > 0; c--) {
+            start[c] = start[c - 1];
+        }
+        start[0] = 0;
+    }
+
+    private int chunkOf(int cell) {
+        int row = cell / colCount;
+        int col = cell - row * colCount;
+        return (row >> CHUNK_SHIFT) * chunkCols + (col >> CHUNK_SHIFT);
+    }
+
+    public int getChunkRowCount() { return chunkRows; }
+
+    public int getChunkColCount() { return chunkCols; }
+
+    //chunk rows and columns are board rows and columns shifted right by CHUNK_SHIFT
+    public int chunk(int chunkRow, int chunkCol) { return chunkRow * chunkCols + chunkCol; }
+
+    public int getStart(int chunk) { return start[chunk]; }
+
+    public int getEnd(int chunk) { return start[chunk + 1]; }
+
+    public int get(int i) { return cells[i]; }
+}
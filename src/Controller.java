@@ -0,0 +1,4 @@
+// Picks the direction for the next tick - the same input the W/A/S/D keys feed into the game
+public interface Controller {
+    int nextDirection(GameEngine engine);
+}
@@ -0,0 +1,260 @@
+// Renders a replay headlessly with the GamePanel drawing code, one frame per tick, into a single output file:
+//  - .gif: an animated GIF playing at the tick rate stored in the replay, each frame with its own palette
+//  - anything else: PNG images back to back, e.g. for ffmpeg -f image2pipe
+// The calling thread replays the game and hands a fork of each tick to a pool that renders and encodes it.
+// Frames come back in order through a bounded queue, so a long replay never holds more than a few frames.
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+
+public class FrameExporter {
+    //frames queued for writing per worker, beyond the ones being rendered
+    private static final int FRAMES_PER_WORKER = 2;
+    private static final byte[] GIF_HEADER = { 'G', 'I', 'F', '8', '9', 'a' };
+    private static final int GIF_TRAILER = 0x3B;
+    private static final int GIF_EXTENSION = 0x21;
+    private static final int GIF_IMAGE = 0x2C;
+
+    private final int width, height;
+    private final int threadCount;
+
+    private static final class Renderer {
+        final SnapshotExchange snapshots = new SnapshotExchange();
+        final BufferedImage image;
+        final Graphics2D graphics;
+        GamePanel panel;
+
+        Renderer(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            graphics = image.createGraphics();
+        }
+    }
+
+    public FrameExporter(int width, int height, int threadCount) {
+        this.width = width;
+        this.height = height;
+        this.threadCount = threadCount;
+    }
+
+    //export ticks from fromTick to toTick of replay, both included, and return the number of frames written
+    public long export(ReplayReader replay, Path output, long fromTick, long toTick) throws IOException {
+        boolean gif = output.getFileName().toString().toLowerCase().endsWith(".gif");
+        TickRate tickRate = replay.getTickRate();
+        BlockingQueue<Future<byte[]>> frames = new ArrayBlockingQueue<>(threadCount * FRAMES_PER_WORKER);
+        //one panel and image per worker thread, panels are not thread safe
+        Queue<Renderer> created = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Renderer> renderers = ThreadLocal.withInitial(() -> {
+            Renderer renderer = new Renderer(width, height);
+            created.add(renderer);
+            return renderer;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            //the writer runs behind the producer, blocked on the oldest frame while newer ones render
+            Future<Long> writer = writerThread.submit(() -> writeFrames(frames, channel, gif));
+
+            GameEngine engine = replay.seek(fromTick);
+            for (long tick = fromTick; tick <= toTick; tick++) {
+                GameEngine frame = engine.fork();
+                long sequence = tick + 1;
+                boolean first = tick == fromTick;
+                //shown until the next tick, which came as fast as the recorded game ran at this score
+                long periodNanos = tickRate.periodFor(frame.getFruitsEaten());
+                queue(frames, pool.submit(() -> encode(render(renderers.get(), frame, sequence), gif, first,
+                                                       periodNanos)), writer);
+                if (tick < toTick && replay.step() == null) {
+                    break;
+                }
+            }
+            //an empty frame ends the writer
+            queue(frames, pool.submit(() -> new byte[0]), writer);
+            return writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof ExecutionException) {
+                cause = cause.getCause();
+            }
+            throw new IOException("Export failed", cause);
+        } finally {
+            writerThread.shutdownNow();
+            shutdown(pool, created);
+        }
+    }
+
+    //the renderers' graphics are only released once no worker can still be drawing with them
+    private static void shutdown(ExecutorService pool, Queue<Renderer> renderers) {
+        pool.shutdownNow();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (Renderer renderer : renderers) {
+            renderer.graphics.dispose();
+        }
+    }
+
+    //blocks while the queue is full, which keeps rendering from running ahead of the disk,
+    //and gives up if the writer has failed and will never take the frame
+    private static void queue(BlockingQueue<Future<byte[]>> frames, Future<byte[]> frame, Future<Long> writer)
+            throws InterruptedException, ExecutionException {
+        while (!frames.offer(frame, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                writer.get();
+                throw new ExecutionException(new IOException("Frame writer stopped"));
+            }
+        }
+    }
+
+    //draw one settled frame of engine, on a pool thread
+    private BufferedImage render(Renderer renderer, GameEngine engine, long sequence) {
+        //a zero tick period draws the snake fully on its cells with the camera on the head
+        renderer.snapshots.getBack().copyFrom(engine, sequence, 0, 0);
+        renderer.snapshots.publish();
+        if (renderer.panel == null) {
+            renderer.panel = new GamePanel(renderer.snapshots);
+            renderer.panel.setSize(width, height);
+        }
+        //takes the snapshot, then moves the camera, which a new panel's first snapshot would otherwise skip
+        renderer.panel.repaintChanges();
+        renderer.panel.repaintAnimations();
+        renderer.panel.paintComponent(renderer.graphics);
+        return renderer.image;
+    }
+
+    //the bytes to write for one frame; for a GIF, spliced into an animation frame shown for periodNanos
+    private static byte[] encode(BufferedImage image, boolean gif, boolean first, long periodNanos)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        if (!ImageIO.write(image, gif ? "gif" : "png", out)) {
+            throw new IOException("No " + (gif ? "GIF" : "PNG") + " encoder available");
+        }
+        if (!gif) {
+            return out.toByteArray();
+        }
+        //centiseconds, at least the 2 that viewers honour
+        int delay = (int) Math.max(2, periodNanos / 10_000_000);
+        ByteBuffer single = ByteBuffer.wrap(out.toByteArray());
+        //both fill their buffer exactly
+        return (first ? gifStart(single, delay) : gifFrame(single, delay)).array();
+    }
+
+    private static long writeFrames(BlockingQueue<Future<byte[]>> frames, FileChannel channel, boolean gif)
+            throws Exception {
+        long count = 0;
+        for (byte[] frame = frames.take().get(); frame.length > 0; frame = frames.take().get()) {
+            ByteBuffer data = ByteBuffer.wrap(frame);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            count++;
+        }
+        if (gif && count > 0) {
+            channel.write(ByteBuffer.wrap(new byte[] { GIF_TRAILER }));
+        }
+        return count;
+    }
+
+    //header, screen descriptor and a loop forever extension, then the first frame
+    private static ByteBuffer gifStart(ByteBuffer gif, int delay) {
+        ByteBuffer frame = gifFrame(gif, delay);
+        byte[] loop = { GIF_EXTENSION, (byte) 0xFF, 11, 'N', 'E', 'T', 'S', 'C', 'A', 'P', 'E', '2', '.', '0',
+                        3, 1, 0, 0, 0 };
+        ByteBuffer start = ByteBuffer.allocate(GIF_HEADER.length + 7 + loop.length + frame.remaining());
+        start.put(GIF_HEADER);
+        //screen size from the encoded image, without a global colour table
+        start.put(gif.array(), 6, 4).put((byte) 0).put((byte) 0).put((byte) 0);
+        start.put(loop);
+        start.put(frame);
+        return start.flip();
+    }
+
+    //the image of a single-image GIF as an animation frame: a graphic control extension with the delay, then the
+    //image descriptor with the file's global colour table moved in as its local one, then the image data
+    private static ByteBuffer gifFrame(ByteBuffer gif, int delay) {
+        byte[] bytes = gif.array();
+        int screenFlags = bytes[10] & 0xFF;
+        int pos = 13;
+        int globalTable = 0, globalTableSize = 0;
+        if ((screenFlags & 0x80) != 0) {
+            globalTable = pos;
+            globalTableSize = 3 << ((screenFlags & 7) + 1);
+            pos += globalTableSize;
+        }
+        //skip the encoder's own extensions up to the image
+        while ((bytes[pos] & 0xFF) == GIF_EXTENSION) {
+            pos = skipSubBlocks(bytes, pos + 2);
+        }
+        if ((bytes[pos] & 0xFF) != GIF_IMAGE) {
+            throw new UncheckedIOException(new IOException("Unexpected GIF block " + (bytes[pos] & 0xFF)));
+        }
+        int descriptor = pos;
+        int imageFlags = bytes[descriptor + 9] & 0xFF;
+        int dataStart = descriptor + 10;
+        boolean moveTable = (imageFlags & 0x80) == 0 && globalTableSize > 0;
+        int end = skipSubBlocks(bytes, dataStart + ((imageFlags & 0x80) != 0 ? 3 << ((imageFlags & 7) + 1) : 0) + 1);
+
+        ByteBuffer frame = ByteBuffer.allocate(8 + (end - descriptor) + (moveTable ? globalTableSize : 0));
+        frame.put(new byte[] { GIF_EXTENSION, (byte) 0xF9, 4, 0, (byte) delay, (byte) (delay >>> 8), 0, 0 });
+        frame.put(bytes, descriptor, 9);
+        if (moveTable) {
+            frame.put((byte) (imageFlags | 0x80 | (screenFlags & 7)));
+            frame.put(bytes, globalTable, globalTableSize);
+        } else {
+            frame.put((byte) imageFlags);
+        }
+        frame.put(bytes, dataStart, end - dataStart);
+        return frame.flip();
+    }
+
+    //index just past the terminator of the sub-block chain starting at pos
+    private static int skipSubBlocks(byte[] bytes, int pos) {
+        while (bytes[pos] != 0) {
+            pos += (bytes[pos] & 0xFF) + 1;
+        }
+        return pos + 1;
+    }
+
+    // usage: java FrameExporter <replay> <output.gif|output.png> [width] [height] [threads] [from] [to]
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        ReplayReader replay = ReplayReader.open(Paths.get(args[0]));
+        Path output = Paths.get(args[1]);
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 400;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long from = args.length > 5 ? Long.parseLong(args[5]) : 0;
+        long to = args.length > 6 ? Long.parseLong(args[6]) : replay.getTickCount();
+
+        long start = System.nanoTime();
+        long frames = new FrameExporter(width, height, threads).export(replay, output, from, to);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d frames of %dx%d to %s with %d threads in %.2f s (%.0f frames/s)%n",
+            frames, width, height, output, threads, seconds, frames / seconds);
+    }
+}
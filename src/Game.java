@@ -8,88 +8,161 @@ import java.awt.FlowLayout;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Component;
+import java.awt.Container;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GradientPaint;
 import java.awt.RenderingHints;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
 
-public class Game implements ActionListener {
-    public static final int DIRECTION_NONE = 0,
-                            DIRECTION_RIGHT = 1,
-                            DIRECTION_LEFT = -1,
-                            DIRECTION_UP = 2,
-                            DIRECTION_DOWN = -2;
-    private Snake snake;
-    private Board board;
-    private int direction;
-    private boolean gameOver;
-    private int fruitsEaten; 
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class Game {
+    public static final int DIRECTION_NONE = GameEngine.DIRECTION_NONE,
+                            DIRECTION_RIGHT = GameEngine.DIRECTION_RIGHT,
+                            DIRECTION_LEFT = GameEngine.DIRECTION_LEFT,
+                            DIRECTION_UP = GameEngine.DIRECTION_UP,
+                            DIRECTION_DOWN = GameEngine.DIRECTION_DOWN;
+    private final TickRate tickRate = TickRate.fromSystemProperties();
+    private GameEngine engine;
+    //direction fed to the engine, tick thread only
+    private int tickDirection;
+    //a few turns of look-ahead, so quick presses within one tick each get their own tick
+    private final InputQueue inputs = new InputQueue(4);
+    //drives the snake instead of the keys while on, toggled with P or started with -Dsnake.autopilot=true
+    private final Autopilot autopilot = new Autopilot();
+    private volatile boolean autopilotOn = Boolean.getBoolean("snake.autopilot");
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private long snapshotSequence;
+    private final Runnable snapshotReady = this::onSnapshot;
+    private int shownScore;
+    //score of the latest snapshot, for the score label when the panel belongs to the render thread
+    private volatile int publishedScore;
     private GamePanel gamePanel;
-    private Timer timer;
+    //draws gamePanel from its own thread in active rendering mode, null in the default Swing repaint mode
+    private ActiveRenderer activeRenderer;
+    //what shows the board and takes the keys, activeRenderer or gamePanel
+    private Component boardView;
+    private GameLoop loop;
     private JFrame frame;
     private JLabel scoreCounter;
+    //built once and shown in place of the board when a game ends
+    private JPanel gameOverPanel;
     private JLabel endMessage;
+    private JLabel finalScore;
     private boolean paused;
     private JLabel pauseMessage;
     private JButton pauseButton;
     private JButton resumeButton;
+    private JButton saveButton;
+    private JButton loadButton;
     private JButton restartButton;
     private JPanel buttonPanel;
     private Timer animationTimer;
-    private final int ANIMATION_DELAY = 16; // 60 FPS
-
-    public Game(Snake snake, Board board) {
-        this.snake = snake;
-        this.board = board;
-        this.fruitsEaten = 0;
-        this.direction = DIRECTION_NONE;
-        this.gameOver = false;
+    //render rate, set with -Dsnake.fps (60 by default, 120/144 for high refresh screens)
+    private static final int FRAMES_PER_SECOND = Integer.getInteger("snake.fps", 60);
+    private final int ANIMATION_DELAY = Math.max(1, 1000 / FRAMES_PER_SECOND);
+    private long lastFrameNanos;
+    //-Dsnake.render=active draws from a render thread into a BufferStrategy instead of through Swing repaints,
+    //with -Dsnake.render.buffers=2 or 3 and -Dsnake.render.benchmark=true to run uncapped and print frame rates
+    private static final boolean ACTIVE_RENDERING = "active".equals(System.getProperty("snake.render"));
+    private static final int RENDER_BUFFERS = Integer.getInteger("snake.render.buffers", 2);
+    private static final boolean RENDER_BENCHMARK = Boolean.getBoolean("snake.render.benchmark");
+    //full-screen exclusive, with -Dsnake.fullscreen=true in active rendering mode where the device supports it
+    private static final boolean FULL_SCREEN = Boolean.getBoolean("snake.fullscreen");
+    //board size, set with -Dsnake.rows and -Dsnake.cols - boards larger than the window scroll with the head
+    private static final int ROWS = Integer.getInteger("snake.rows", 10);
+    private static final int COLS = Integer.getInteger("snake.cols", 10);
+    //level file to play on instead of an open board, set with -Dsnake.level (its size overrides rows and cols)
+    private static final String LEVEL_FILE = System.getProperty("snake.level");
+    //directory to save a replay of every finished game in, set with -Dsnake.replay.dir
+    private static final String REPLAY_DIR = System.getProperty("snake.replay.dir");
+    private final SplittableRandom seedSource = new SplittableRandom();
+    private ReplayRecorder recorder;
+    //where a paused game is saved to and loaded from, set with -Dsnake.save.file
+    private static final Path SAVE_FILE = Paths.get(System.getProperty("snake.save.file", "snake.save"));
+    private ByteBuffer saveBuffer;
+
+    public Game(GameEngine engine) {
+        this.engine = engine;
         this.paused = false;
+        startRecording();
+        publishSnapshot();
 
         frame = new JFrame("Snake Game");
-        gamePanel = new GamePanel(board, snake);
+        gamePanel = new GamePanel(snapshots);
+        if (ACTIVE_RENDERING) {
+            activeRenderer = new ActiveRenderer(gamePanel, RENDER_BUFFERS, RENDER_BENCHMARK ? 0 : FRAMES_PER_SECOND);
+            boardView = activeRenderer;
+        } else {
+            boardView = gamePanel;
+        }
         
         frame.setLayout(new BorderLayout());
-        frame.add(gamePanel, BorderLayout.CENTER);
+        frame.add(boardView, BorderLayout.CENTER);
 
         setupUI();
 
+        GraphicsDevice device = ACTIVE_RENDERING && FULL_SCREEN
+                              ? GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice() : null;
+        boolean fullScreen = device != null && device.isFullScreenSupported();
+        //decorations can only be changed before pack() makes the frame displayable
+        if (fullScreen) {
+            frame.setUndecorated(true);
+            frame.setResizable(false);
+        }
         frame.pack();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setVisible(true);
+        if (fullScreen) {
+            device.setFullScreenWindow(frame);
+        } else {
+            frame.setVisible(true);
+        }
 
         setupKeyBindings();
 
-        timer = new Timer(500, this); 
-        timer.start();
+        loop = new GameLoop(this::tick, tickRate.periodFor(0));
+        loop.start();
 
         setupAnimations();
     }
 
-    private void setGameOver(boolean gameOver) { 
-        this.gameOver = gameOver;
-        if (gameOver) {
-            System.out.println("crash");
-            gameEnd();
-        } 
+    private void gameEnd(String message, Color messageColor) {
+        loop.stop();
+        saveReplay();
+        stopAnimations();
+        
+        if (gameOverPanel == null) {
+            gameOverPanel = createGameOverPanel();
+        }
+        endMessage.setText(message);
+        endMessage.setForeground(messageColor);
+        finalScore.setText("Final Score: " + engine.getFruitsEaten());
+        showCenter(gameOverPanel);
     }
 
-    private void gameEnd() {
-        timer.stop();
-        animationTimer.stop();
-        
-        JPanel gameOverPanel = new JPanel();
-        gameOverPanel.setLayout(new BoxLayout(gameOverPanel, BoxLayout.Y_AXIS));
-        gameOverPanel.setBackground(new Color(0, 0, 0, 180));
+    private JPanel createGameOverPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBackground(new Color(0, 0, 0, 180));
         
-        endMessage = new JLabel("Game Over!");
-        endMessage.setForeground(Color.RED);
+        endMessage = new JLabel();
         endMessage.setFont(new Font("Arial", Font.BOLD, 36));
         endMessage.setAlignmentX(Component.CENTER_ALIGNMENT);
         
-        JLabel finalScore = new JLabel("Final Score: " + fruitsEaten);
+        finalScore = new JLabel();
         finalScore.setForeground(Color.WHITE);
         finalScore.setFont(new Font("Arial", Font.BOLD, 24));
         finalScore.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -98,151 +171,214 @@ public class Game implements ActionListener {
         playAgain.setAlignmentX(Component.CENTER_ALIGNMENT);
         playAgain.addActionListener(e -> restartGame());
         
-        gameOverPanel.add(Box.createVerticalGlue());
-        gameOverPanel.add(endMessage);
-        gameOverPanel.add(Box.createRigidArea(new Dimension(0, 20)));
-        gameOverPanel.add(finalScore);
-        gameOverPanel.add(Box.createRigidArea(new Dimension(0, 30)));
-        gameOverPanel.add(playAgain);
-        gameOverPanel.add(Box.createVerticalGlue());
-        
-        frame.remove(gamePanel);
-        frame.add(gameOverPanel, BorderLayout.CENTER);
-        frame.revalidate();
-        frame.repaint();
+        panel.add(Box.createVerticalGlue());
+        panel.add(endMessage);
+        panel.add(Box.createRigidArea(new Dimension(0, 20)));
+        panel.add(finalScore);
+        panel.add(Box.createRigidArea(new Dimension(0, 30)));
+        panel.add(playAgain);
+        panel.add(Box.createVerticalGlue());
+        return panel;
     }
 
-    private void update() {
-        if (!gameOver) {
-            if (direction != DIRECTION_NONE) {
-                Cell nextCell = getNextCell(snake.getHead());
-
-                if (nextCell == null || snake.checkCrash(nextCell)) {
-                    setGameOver(true);
-                    timer.stop();
-                } else {
-                    if (nextCell.getCellType() == CellType.FOOD) {
-                        snake.grow();
-                        fruitsEaten++;
-                        updateScore();
-                        board.generateFood(snake);
-                    }
-                
-                    snake.move(nextCell);
-                }
+    //swap what fills the middle of the window - the board, the pause message or the game over panel
+    private void showCenter(Component component) {
+        Container content = frame.getContentPane();
+        Component current = ((BorderLayout) content.getLayout()).getLayoutComponent(BorderLayout.CENTER);
+        if (current == component) {
+            return;
+        }
+        if (current != null) {
+            content.remove(current);
+        }
+        content.add(component, BorderLayout.CENTER);
+        content.revalidate();
+        content.repaint();
+    }
+
+    //runs on the tick thread - everything the EDT needs goes out through the snapshot
+    private void tick() {
+        if (autopilotOn) {
+            inputs.clear();
+            tickDirection = autopilot.nextDirection(engine);
+        }
+        //apply at most one turn per tick, checked against the direction the snake actually moved last tick;
+        //presses that would not turn it (same way or straight back) are dropped
+        for (int next = inputs.poll(); next != DIRECTION_NONE; next = inputs.poll()) {
+            int applied = engine.getDirection();
+            if (next != applied && next != -applied) {
+                tickDirection = next;
+                Telemetry.recordInputLatency(System.nanoTime() - inputs.getPolledNanos());
+                break;
             }
         }
-        gamePanel.repaint(); 
+        if (recorder != null) {
+            recorder.record(tickDirection);
+        }
+        TickResult result = engine.step(tickDirection);
+        if (result == TickResult.ATE) {
+            loop.setPeriodNanos(tickRate.periodFor(engine.getFruitsEaten()));
+        }
+        publishSnapshot();
+        SwingUtilities.invokeLater(snapshotReady);
+
+        if (result == TickResult.CRASHED) {
+            loop.stop();
+            SwingUtilities.invokeLater(() -> gameEnd("Game Over!", Color.RED));
+        } else if (result == TickResult.WON) {
+            loop.stop();
+            SwingUtilities.invokeLater(() -> gameEnd("You Win!", Color.GREEN));
+        }
     }
 
-    private void updateScore() {
-        scoreCounter.setText("Score: " + fruitsEaten);
+    //only called from the tick thread, or from the EDT while the loop is stopped
+    private void publishSnapshot() {
+        snapshots.getBack().copyFrom(engine, ++snapshotSequence, System.nanoTime(),
+                                     tickRate.periodFor(engine.getFruitsEaten()));
+        snapshots.publish();
+        publishedScore = engine.getFruitsEaten();
     }
 
-    private Cell getNextCell(Cell currentPosition) {
-        int row = currentPosition.getRow();
-        int col = currentPosition.getCol();
-
-        if (direction == DIRECTION_RIGHT) {
-            col++;
-        } 
-        else if (direction == DIRECTION_LEFT) {
-            col--;
-        } 
-        else if (direction == DIRECTION_UP) {
-            row--;
-        } 
-        else if (direction == DIRECTION_DOWN) {
-            row++;
+    private void onSnapshot() {
+        //the render thread picks the snapshot up on its next frame
+        if (activeRenderer == null) {
+            gamePanel.repaintChanges();
         }
+        updateScore();
+    }
 
-        if (row < 0 || row >= board.ROW_COUNT || col < 0 || col >= board.COL_COUNT) {
-            return null;
+    private void updateScore() {
+        int score = publishedScore;
+        if (score != shownScore) {
+            shownScore = score;
+            scoreCounter.setText("Score: " + score);
         }
-
-        return board.getCells()[row][col];
     }
 
     private void changeDirection(int newDirection) {
-        if (direction != -newDirection) {
-            direction = newDirection;
-        }
+        inputs.offer(newDirection);
     }
 
     private void pauseGame() {
-        timer.stop();
-        animationTimer.stop();
+        loop.stop();
+        stopAnimations();
         paused = true;
-        pauseMessage = new JLabel("Game Paused!");
         buttonPanel.remove(pauseButton); 
-        resumeButton = new JButton("Resume");
-        resumeButton.addActionListener(e -> resumeGame());
         buttonPanel.add(resumeButton); 
-        frame.remove(gamePanel);
-        frame.add(pauseMessage, BorderLayout.CENTER); 
-        frame.revalidate();
-        frame.repaint();
+        buttonPanel.add(saveButton);
+        buttonPanel.add(loadButton);
+        buttonPanel.revalidate();
+        buttonPanel.repaint();
+        showCenter(pauseMessage);
     }
 
     private void resumeGame() {
-        buttonPanel.remove(resumeButton); 
-        buttonPanel.add(pauseButton);
-        frame.remove(pauseMessage);
-        frame.add(gamePanel, BorderLayout.CENTER);
-        setupKeyBindings();
-        frame.revalidate();
-        frame.repaint();
-        paused = false;
-        timer.start();
-        animationTimer.start();
+        showBoard();
+        lastFrameNanos = 0;
+        loop.start();
+        startAnimations();
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        update();
+    //put the board and the pause button back after a pause or a finished game
+    private void showBoard() {
+        if (paused) {
+            paused = false;
+            buttonPanel.remove(resumeButton); 
+            buttonPanel.remove(saveButton);
+            buttonPanel.remove(loadButton);
+            buttonPanel.add(pauseButton);
+            buttonPanel.revalidate();
+            buttonPanel.repaint();
+        }
+        showCenter(boardView);
+        boardView.requestFocusInWindow();
     }
 
+    //new game in the same engine, panel, listeners and timers - nothing is rebuilt
     private void restartGame() {
-        timer.stop();
-        animationTimer.stop();
-        if (paused) {resumeGame();}
-        board = new Board(10, 10);
-        Cell initPos = new Cell(5, 5);
-        snake = new Snake(initPos);
-        direction = DIRECTION_NONE;
-        gameOver = false;
-        fruitsEaten = 0;
+        loop.stop();
+        stopAnimations();
+        startRecording();
+        tickDirection = DIRECTION_NONE;
+        inputs.clear();
+        loop.setPeriodNanos(tickRate.periodFor(0));
+        publishSnapshot();
+
+        gamePanel.repaintChanges();
+        shownScore = -1;
         updateScore();
-        board.generateFood(snake);
+        showBoard();
 
-        gamePanel = new GamePanel(board, snake);
+        lastFrameNanos = 0;
+        startAnimations();
+        loop.start();
+    }
 
-        frame.getContentPane().removeAll();
-        frame.setLayout(new BorderLayout());
-        frame.add(gamePanel, BorderLayout.CENTER);
-        frame.add(buttonPanel, BorderLayout.SOUTH);
-        
-        JPanel scorePanel = new JPanel();
-        scorePanel.setLayout(new FlowLayout(FlowLayout.CENTER));
-        scorePanel.setBackground(new Color(40, 40, 40));
-        scorePanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
-        scorePanel.add(scoreCounter);
-        
-        frame.add(scorePanel, BorderLayout.NORTH);
-        
-        frame.revalidate();
-        frame.repaint();
-        endMessage = null; 
-        
-        setupKeyBindings();
-        setupAnimations();
-        timer.start();
+    //reseed the engine so the new game can be replayed from its seed
+    private void startRecording() {
+        long seed = seedSource.nextLong();
+        engine.reset(new GameRandom(seed));
+        //replays do not name a level, so games on one could not be played back
+        recorder = engine.getLevel() == null
+                 ? new ReplayRecorder(seed, engine.ROW_COUNT, engine.COL_COUNT, engine.getFoodCount(), tickRate)
+                 : null;
+    }
+
+    //only while paused, the tick thread is stopped and the engine is ours
+    private void saveGame() {
+        int size = engine.getStateSize();
+        if (saveBuffer == null || saveBuffer.capacity() < size) {
+            saveBuffer = ByteBuffer.allocate(size);
+        }
+        saveBuffer.clear();
+        engine.writeTo(saveBuffer);
+        saveBuffer.flip();
+        try (FileChannel channel = FileChannel.open(SAVE_FILE, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (saveBuffer.hasRemaining()) {
+                channel.write(saveBuffer);
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not save the game: " + e.getMessage());
+        }
+    }
+
+    //only while paused; the loaded game stays paused until resumed
+    private void loadGame() {
+        try {
+            engine.readFrom(ByteBuffer.wrap(Files.readAllBytes(SAVE_FILE)));
+        } catch (IOException | RuntimeException e) {
+            JOptionPane.showMessageDialog(frame, "Could not load " + SAVE_FILE + ": " + e.getMessage());
+            return;
+        }
+        //a replay has to start from a fresh game, so this one is not recorded
+        recorder = null;
+        tickDirection = engine.getDirection();
+        inputs.clear();
+        loop.setPeriodNanos(tickRate.periodFor(engine.getFruitsEaten()));
+        publishSnapshot();
+        gamePanel.repaintChanges();
+        shownScore = -1;
+        updateScore();
     }
 
+    private void saveReplay() {
+        if (REPLAY_DIR == null || recorder == null) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(REPLAY_DIR);
+            Files.createDirectories(dir);
+            recorder.save(dir.resolve("snake-" + System.currentTimeMillis() + ".replay"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //called once, the panel and its listener live as long as the window
     private void setupKeyBindings() {
-        gamePanel.setFocusable(true);
-        gamePanel.requestFocusInWindow();
-        gamePanel.addKeyListener(new KeyAdapter() {
+        boardView.setFocusable(true);
+        boardView.requestFocusInWindow();
+        boardView.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 switch (e.getKeyCode()) {
@@ -258,10 +394,13 @@ public class Game implements ActionListener {
                     case KeyEvent.VK_D:
                         changeDirection(DIRECTION_RIGHT);
                         break;
+                    case KeyEvent.VK_P:
+                        autopilotOn = !autopilotOn;
+                        break;
                 }
             }
         });
-        SwingUtilities.invokeLater(() -> gamePanel.requestFocusInWindow());
+        SwingUtilities.invokeLater(() -> boardView.requestFocusInWindow());
     }
 
     private void setupUI() {
@@ -276,7 +415,7 @@ public class Game implements ActionListener {
         scorePanel.setBackground(new Color(40, 40, 40));
         scorePanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
         
-        scoreCounter = new JLabel("Score: " + fruitsEaten);
+        scoreCounter = new JLabel("Score: " + engine.getFruitsEaten());
         scoreCounter.setFont(new Font("Arial", Font.BOLD, 18));
         scoreCounter.setForeground(Color.WHITE);
         scorePanel.add(scoreCounter);
@@ -295,6 +434,15 @@ public class Game implements ActionListener {
         pauseButton.addActionListener(e -> pauseGame());
         buttonPanel.add(pauseButton);
         
+        //swapped in for the pause button while paused
+        resumeButton = new JButton("Resume");
+        resumeButton.addActionListener(e -> resumeGame());
+        pauseMessage = new JLabel("Game Paused!");
+        saveButton = new JButton("Save");
+        saveButton.addActionListener(e -> saveGame());
+        loadButton = new JButton("Load");
+        loadButton.addActionListener(e -> loadGame());
+        
         frame.add(buttonPanel, BorderLayout.SOUTH);
     }
 
@@ -331,25 +479,51 @@ public class Game implements ActionListener {
     }
 
     private void setupAnimations() {
+        if (activeRenderer != null) {
+            activeRenderer.start();
+            return;
+        }
+        lastFrameNanos = 0;
         animationTimer = new Timer(ANIMATION_DELAY, new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                long now = System.nanoTime();
+                if (lastFrameNanos != 0) {
+                    Telemetry.recordFrame(now - lastFrameNanos, 1_000_000_000L / FRAMES_PER_SECOND);
+                }
+                lastFrameNanos = now;
                 gamePanel.updateAnimations();
-                gamePanel.repaint();
+                gamePanel.repaintAnimations();
             }
         });
         animationTimer.start();
     }
 
-    public static void main(String[] args) {
+    //the animation timer, or the render thread in active rendering mode
+    private void startAnimations() {
+        if (activeRenderer != null) {
+            activeRenderer.start();
+        } else {
+            animationTimer.start();
+        }
+    }
+
+    //once this returns the panel is the EDT's again
+    private void stopAnimations() {
+        if (activeRenderer != null) {
+            activeRenderer.stop();
+        } else {
+            animationTimer.stop();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Level level = LEVEL_FILE != null ? Level.open(Paths.get(LEVEL_FILE)) : null;
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                Cell initPos = new Cell(5, 5);
-                Snake initSnake = new Snake(initPos);
-                Board board = new Board(10, 10);
-                new Game(initSnake, board);
-                board.generateFood(initSnake);
+                GameRandom random = new GameRandom(System.nanoTime());
+                new Game(level != null ? new GameEngine(level, random) : new GameEngine(ROWS, COLS, random));
             }
         });
     }
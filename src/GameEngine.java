@@ -0,0 +1,375 @@
+// Headless snake rules - no AWT/Swing, so ticks can run as fast as the JVM allows
+import java.nio.ByteBuffer;
+import java.util.random.RandomGenerator;
+
+public class GameEngine {
+    public static final int DIRECTION_NONE = 0,
+                            DIRECTION_RIGHT = 1,
+                            DIRECTION_LEFT = -1,
+                            DIRECTION_UP = 2,
+                            DIRECTION_DOWN = -2;
+    final int ROW_COUNT, COL_COUNT;
+    //one food item per this many cells on big boards, never fewer than one
+    public static final int CELLS_PER_FOOD = 1000;
+    //saved state layout, see writeTo()
+    static final int STATE_MAGIC = 0x534E4B53; // "SNKS"
+    static final byte STATE_VERSION = 1;
+    private static final int STATE_HEADER_SIZE = 64;
+    //bytes from the magic number to the previous tail, before the body
+    private static final int STATE_FIXED_SIZE = 47;
+    private RandomGenerator random;
+    private int foodCount;
+    private final Board board;
+    private final Snake snake;
+    //walls, start cell and edge wrapping, or null for an open board
+    private final Level level;
+    private int direction;
+    private int fruitsEaten;
+    private boolean gameOver;
+    private boolean won;
+    private boolean hitWall;
+    private long ticks;
+    //head and tail before the last tick, equal to the current ones if the snake did not move
+    private int previousHead, previousTail;
+
+    //constructor - random drives food placement, pass a seeded generator for reproducible games
+    public GameEngine(int rowCount, int columnCount, RandomGenerator random) {
+        //cells are addressed by a single int index
+        if (rowCount <= 0 || columnCount <= 0 || (long) rowCount * columnCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported board size " + rowCount + " x " + columnCount);
+        }
+        ROW_COUNT = rowCount;
+        COL_COUNT = columnCount;
+        this.random = random;
+        this.foodCount = Math.max(1, rowCount * columnCount / CELLS_PER_FOOD);
+        level = null;
+        board = new Board(ROW_COUNT, COL_COUNT);
+        snake = new Snake(board, startCell());
+        begin();
+    }
+
+    //game on level's layout, starting on the level's start cell
+    public GameEngine(Level level, RandomGenerator random) {
+        ROW_COUNT = level.ROW_COUNT;
+        COL_COUNT = level.COL_COUNT;
+        this.random = random;
+        this.foodCount = Math.max(1, ROW_COUNT * COL_COUNT / CELLS_PER_FOOD);
+        this.level = level;
+        board = new Board(level);
+        snake = new Snake(board, startCell());
+        begin();
+    }
+
+    //copy of other sharing its board pages, see fork()
+    private GameEngine(GameEngine other) {
+        ROW_COUNT = other.ROW_COUNT;
+        COL_COUNT = other.COL_COUNT;
+        random = other.gameRandom().copy();
+        foodCount = other.foodCount;
+        level = other.level;
+        board = other.board.fork();
+        snake = other.snake.fork(board);
+        direction = other.direction;
+        fruitsEaten = other.fruitsEaten;
+        gameOver = other.gameOver;
+        won = other.won;
+        hitWall = other.hitWall;
+        ticks = other.ticks;
+        previousHead = other.previousHead;
+        previousTail = other.previousTail;
+    }
+
+    //independent game in the same state, including where the food generator is, for trying out moves.
+    //Board and occupancy pages are shared copy-on-write, so a fork costs about the snake's length, not the board's area
+    public GameEngine fork() {
+        return new GameEngine(this);
+    }
+
+    //start a fresh game drawing food from a new generator, e.g. a freshly seeded one for a replay
+    public void reset(RandomGenerator random) {
+        this.random = random;
+        reset();
+    }
+
+    //start a fresh game with the snake in the middle of the board, reusing the board and snake in place
+    public void reset() {
+        board.clear();
+        snake.reset(startCell());
+        begin();
+    }
+
+    private int startCell() { return level != null ? level.getStart() : board.index(ROW_COUNT / 2, COL_COUNT / 2); }
+
+    private void begin() {
+        direction = DIRECTION_NONE;
+        fruitsEaten = 0;
+        gameOver = false;
+        won = false;
+        hitWall = false;
+        ticks = 0;
+        placeFood();
+        previousHead = snake.getHead();
+        previousTail = snake.getTail();
+    }
+
+    //keep foodCount items on the board, returns false once there is no room left for any
+    private boolean placeFood() {
+        while (board.getFoodCount() < foodCount) {
+            if (!board.generateFood(random)) {
+                break;
+            }
+        }
+        return board.getFoodCount() > 0;
+    }
+
+    //advance the game by one tick in the requested direction
+    public TickResult step(int newDirection) {
+        long start = Telemetry.start();
+        TickResult result = advance(newDirection);
+        Telemetry.recordTick(start, result);
+        return result;
+    }
+
+    private TickResult advance(int newDirection) {
+        previousHead = snake.getHead();
+        previousTail = snake.getTail();
+        if (gameOver) {
+            return won ? TickResult.WON : TickResult.CRASHED;
+        }
+        changeDirection(newDirection);
+        if (direction == DIRECTION_NONE) {
+            return TickResult.IDLE;
+        }
+        ticks++;
+
+        int nextCell = getNextCell(snake.getHead(), direction);
+        if (nextCell < 0 || board.isWall(nextCell) || snake.checkCrash(nextCell)) {
+            gameOver = true;
+            hitWall = nextCell < 0 || board.isWall(nextCell);
+            Telemetry.recordGameOver(fruitsEaten, ticks, false);
+            return TickResult.CRASHED;
+        }
+
+        if (board.getCellType(nextCell) == CellType.FOOD) {
+            snake.grow(nextCell);
+            fruitsEaten++;
+            long foodStart = Telemetry.start();
+            boolean placed = placeFood();
+            Telemetry.recordFoodEaten(fruitsEaten, foodStart);
+            if (!placed) {
+                //no food left and no empty cell to put more on, the snake fills the board
+                gameOver = true;
+                won = true;
+                Telemetry.recordGameOver(fruitsEaten, ticks, true);
+                return TickResult.WON;
+            }
+            return TickResult.ATE;
+        }
+
+        snake.move(nextCell);
+        return TickResult.MOVED;
+    }
+
+    //ignore 180 degree turns, the snake would run straight into its own neck
+    public void changeDirection(int newDirection) {
+        if (newDirection != DIRECTION_NONE && direction != -newDirection) {
+            direction = newDirection;
+        }
+    }
+
+    //true if moving the head one cell in direction would end the game
+    public boolean isFatal(int direction) {
+        int nextCell = getNextCell(snake.getHead(), direction);
+        return nextCell < 0 || board.isWall(nextCell) || snake.isOccupied(nextCell);
+    }
+
+    //board index of the cell one step from currentPosition, or -1 if it leaves the board.
+    //On a level with wrapping edges it comes back on the opposite side instead
+    public int getNextCell(int currentPosition, int direction) {
+        int row = board.rowOf(currentPosition);
+        int col = board.colOf(currentPosition);
+
+        if (direction == DIRECTION_RIGHT) {
+            col++;
+        } 
+        else if (direction == DIRECTION_LEFT) {
+            col--;
+        } 
+        else if (direction == DIRECTION_UP) {
+            row--;
+        } 
+        else if (direction == DIRECTION_DOWN) {
+            row++;
+        }
+
+        if (row < 0 || row >= ROW_COUNT || col < 0 || col >= COL_COUNT) {
+            if (level == null || !level.isWrap()) {
+                return -1;
+            }
+            row = (row + ROW_COUNT) % ROW_COUNT;
+            col = (col + COL_COUNT) % COL_COUNT;
+        }
+
+        return board.index(row, col);
+    }
+
+    //bytes writeTo() needs at most for the current state
+    public int getStateSize() {
+        int free = board.isFreeIndexed() ? board.getFreeCount() : 0;
+        return STATE_HEADER_SIZE + 4 * (snake.getLength() + board.getFoodCount() + free);
+    }
+
+    //full game state at the buffer's position - rules, generator, body head first, food and,
+    //on a crowded board, the free-cell order food is drawn from
+    public void writeTo(ByteBuffer out) {
+        out.putInt(STATE_MAGIC);
+        out.put(STATE_VERSION);
+        out.putInt(ROW_COUNT);
+        out.putInt(COL_COUNT);
+        out.putInt(foodCount);
+        out.putLong(gameRandom().getState());
+        out.putLong(ticks);
+        out.putInt(fruitsEaten);
+        out.put((byte) direction);
+        out.put((byte) ((gameOver ? 1 : 0) | (won ? 2 : 0) | (hitWall ? 4 : 0)));
+        out.putInt(previousHead);
+        out.putInt(previousTail);
+
+        out.putInt(snake.getLength());
+        for (int i = 0; i < snake.getLength(); i++) {
+            out.putInt(snake.getPart(i));
+        }
+        out.putInt(board.getFoodCount());
+        for (int i = 0; i < board.getFoodCount(); i++) {
+            out.putInt(board.getFood(i));
+        }
+        if (board.isFreeIndexed()) {
+            out.putInt(board.getFreeCount());
+            for (int i = 0; i < board.getFreeCount(); i++) {
+                out.putInt(board.getFreeCell(i));
+            }
+        } else {
+            out.putInt(-1);
+        }
+    }
+
+    //replace this game with one written by writeTo(), reusing the board and snake in place. The whole record is
+    //read and checked first, so a truncated or corrupt one throws IllegalArgumentException with this game untouched
+    public void readFrom(ByteBuffer in) {
+        if (in.remaining() < STATE_FIXED_SIZE || in.getInt() != STATE_MAGIC || in.get() != STATE_VERSION) {
+            throw new IllegalArgumentException("Not a saved snake game (version " + STATE_VERSION + ")");
+        }
+        int rows = in.getInt();
+        int cols = in.getInt();
+        if (rows != ROW_COUNT || cols != COL_COUNT) {
+            throw new IllegalArgumentException("Saved game is " + rows + " x " + cols
+                                               + ", this board is " + ROW_COUNT + " x " + COL_COUNT);
+        }
+        int savedFoodCount = in.getInt();
+        long randomState = in.getLong();
+        long savedTicks = in.getLong();
+        int savedFruitsEaten = in.getInt();
+        int savedDirection = in.get();
+        int flags = in.get();
+        int savedPreviousHead = in.getInt();
+        int savedPreviousTail = in.getInt();
+        if (savedFoodCount < 1 || savedDirection < DIRECTION_DOWN || savedDirection > DIRECTION_UP
+            || !isCell(savedPreviousHead) || !isCell(savedPreviousTail)) {
+            throw new IllegalArgumentException("Saved game is corrupt");
+        }
+        //body head first, food, then the free-cell order or -1 for none
+        int[] body = readCells(in, false);
+        int[] food = readCells(in, false);
+        int[] order = readCells(in, true);
+        if (body.length == 0) {
+            throw new IllegalArgumentException("Saved game has no snake");
+        }
+
+        foodCount = savedFoodCount;
+        if (random instanceof GameRandom) {
+            ((GameRandom) random).setState(randomState);
+        } else {
+            random = new GameRandom(randomState);
+        }
+        ticks = savedTicks;
+        fruitsEaten = savedFruitsEaten;
+        direction = savedDirection;
+        gameOver = (flags & 1) != 0;
+        won = (flags & 2) != 0;
+        hitWall = (flags & 4) != 0;
+        previousHead = savedPreviousHead;
+        previousTail = savedPreviousTail;
+
+        //rebuild the body tail first so every grow() puts the next part in front
+        board.clear();
+        snake.reset(body[body.length - 1]);
+        for (int i = body.length - 2; i >= 0; i--) {
+            snake.grow(body[i]);
+        }
+        for (int cell : food) {
+            board.setCellType(cell, CellType.FOOD);
+        }
+        if (order != null) {
+            board.restoreFreeIndex(order, order.length);
+        }
+    }
+
+    //a count and that many cells from in, checked to fit in what is left and to be open cells of this board;
+    //null for a count of -1 where that is allowed
+    private int[] readCells(ByteBuffer in, boolean optional) {
+        int count = in.remaining() < 4 ? -2 : in.getInt();
+        if (optional && count == -1) {
+            return null;
+        }
+        if (count < 0 || count > ROW_COUNT * COL_COUNT || in.remaining() < 4L * count) {
+            throw new IllegalArgumentException("Saved game is truncated or corrupt");
+        }
+        int[] cells = new int[count];
+        for (int i = 0; i < count; i++) {
+            cells[i] = in.getInt();
+            if (!isCell(cells[i]) || board.isWall(cells[i])) {
+                throw new IllegalArgumentException("Saved game has cell " + cells[i] + " off the board or on a wall");
+            }
+        }
+        return cells;
+    }
+
+    private boolean isCell(int cell) { return cell >= 0 && cell < ROW_COUNT * COL_COUNT; }
+
+    //forking and saving need the generator's state, which only GameRandom exposes
+    private GameRandom gameRandom() {
+        if (!(random instanceof GameRandom)) {
+            throw new IllegalStateException("Forking or saving a game needs a GameRandom food generator");
+        }
+        return (GameRandom) random;
+    }
+
+    public Board getBoard() { return board; }
+
+    //the layout this game is played on, or null for an open board
+    public Level getLevel() { return level; }
+
+    public Snake getSnake() { return snake; }
+
+    public int getDirection() { return direction; }
+
+    public int getFruitsEaten() { return fruitsEaten; }
+
+    public int getFoodCount() { return foodCount; }
+
+    //number of food items kept on the board, takes effect from the next food placement
+    public void setFoodCount(int foodCount) { this.foodCount = Math.max(1, foodCount); }
+
+    public boolean isGameOver() { return gameOver; }
+
+    public boolean isWon() { return won; }
+
+    //only meaningful once the game is over and not won - false means the snake hit itself
+    public boolean isHitWall() { return hitWall; }
+
+    public long getTicks() { return ticks; }
+
+    public int getPreviousHead() { return previousHead; }
+
+    public int getPreviousTail() { return previousTail; }
+}
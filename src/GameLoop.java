@@ -0,0 +1,94 @@
+// Runs game ticks on a dedicated thread at a fixed period, independent of the Swing event thread
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+public class GameLoop implements Runnable {
+    //park until this close to the deadline, then spin - parkNanos alone overshoots by tens of microseconds
+    private static final long SPIN_NANOS = 200_000;
+    //most ticks run back to back when catching up
+    private static final int MAX_CATCH_UP = 5;
+
+    private final Runnable tick;
+    private volatile long periodNanos;
+    //the thread currently allowed to tick, null when stopped
+    private final AtomicReference<Thread> thread = new AtomicReference<>();
+
+    public GameLoop(Runnable tick, long periodNanos) {
+        this.tick = tick;
+        this.periodNanos = periodNanos;
+    }
+
+    public void start() {
+        Thread ticker = new Thread(this, "game-tick");
+        ticker.setDaemon(true);
+        if (thread.compareAndSet(null, ticker)) {
+            ticker.start();
+        }
+    }
+
+    //stop ticking; waits for the current tick to finish unless called from the tick itself
+    public void stop() {
+        Thread self = Thread.currentThread();
+        if (thread.compareAndSet(self, null)) {
+            return;
+        }
+        Thread ticker = thread.getAndSet(null);
+        if (ticker == null) {
+            return;
+        }
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() { return thread.get() != null; }
+
+    public long getPeriodNanos() { return periodNanos; }
+
+    public void setPeriodNanos(long periodNanos) { this.periodNanos = periodNanos; }
+
+    //fixed timestep: real time accumulates and is spent in whole ticks, catching up after a slow tick
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        while (thread.get() == self) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            long period = periodNanos;
+            if (accumulator < period) {
+                waitNanos(self, period - accumulator);
+                continue;
+            }
+
+            Telemetry.recordTickJitter(accumulator - period);
+            int steps = 0;
+            while (accumulator >= period && steps < MAX_CATCH_UP && thread.get() == self) {
+                tick.run();
+                accumulator -= period;
+                steps++;
+            }
+            //still behind after a burst (e.g. a GC pause or a debugger), drop the backlog rather than spiral
+            if (accumulator >= period) {
+                accumulator %= period;
+            }
+        }
+    }
+
+    //returns early if the loop is stopped, stop() unparks the thread
+    private void waitNanos(Thread self, long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        if (nanos > SPIN_NANOS) {
+            LockSupport.parkNanos(nanos - SPIN_NANOS);
+        }
+        while (System.nanoTime() - deadline < 0 && thread.get() == self) {
+            Thread.onSpinWait();
+        }
+    }
+}
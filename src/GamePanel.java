@@ -1,24 +1,46 @@
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
 
 public class GamePanel extends JPanel {
-    private Board board;
-    private Snake snake;
+    private final SnapshotExchange snapshots;
+    //snapshot being drawn, only replaced in repaintChanges() so paints always match the regions repainted
+    private GameSnapshot state;
     private Color backgroundColor = new Color(20, 20, 20);
     private Color gridColor = new Color(50, 50, 50, 100);
     
+    //cells are never drawn smaller than this, boards that do not fit scroll under a camera instead
+    private static final int CELL_SIZE = 20;
+    //the window opens at most this many cells across
+    private static final int VIEWPORT_CELLS = 40;
     private int cellWidth;
     private int cellHeight;
+    //top left of the viewport in board pixels, follows the head and stops at the board edges
+    private int cameraX, cameraY;
+    
+    private final SpriteCache sprites = new SpriteCache();
+    //background gradient and grid, rebuilt only when the panel or cell size changes
+    private BufferedImage backgroundLayer;
+    private int layerWidth, layerHeight, layerCellWidth, layerCellHeight;
+    private double layerScale;
+    
+    private long lastSequence;
+    private int lastHead;
+    //false while the head and tail are still sliding towards their cells for the current snapshot
+    private boolean motionSettled;
     
     private float foodPulseValue = 1.0f;
     private int foodPulseDirection = 1;
     
-    public GamePanel(Board board, Snake snake) {
-        this.board = board;
-        this.snake = snake;
+    //at least one snapshot must have been published before the panel is created
+    public GamePanel(SnapshotExchange snapshots) {
+        this.snapshots = snapshots;
+        this.state = snapshots.acquire();
+        this.lastSequence = state.getSequence();
+        this.lastHead = state.getHead();
         
-        setPreferredSize(new Dimension(board.COL_COUNT * 20, board.ROW_COUNT * 20));
+        setPreferredSize(new Dimension(Math.min(state.getColCount(), VIEWPORT_CELLS) * CELL_SIZE,
+                                       Math.min(state.getRowCount(), VIEWPORT_CELLS) * CELL_SIZE));
         setBackground(backgroundColor);
         
         calculateCellSize();
@@ -26,146 +48,299 @@ public class GamePanel extends JPanel {
     
     private void calculateCellSize() {
         if (getWidth() > 0 && getHeight() > 0) {
-            cellWidth = getWidth() / board.COL_COUNT;
-            cellHeight = getHeight() / board.ROW_COUNT;
+            cellWidth = Math.max(CELL_SIZE, getWidth() / state.getColCount());
+            cellHeight = Math.max(CELL_SIZE, getHeight() / state.getRowCount());
         } else {
-            cellWidth = 20;
-            cellHeight = 20;
+            cellWidth = CELL_SIZE;
+            cellHeight = CELL_SIZE;
+        }
+    }
+
+    //centre the viewport on the sliding head, returns true if it moved
+    private boolean updateCamera() {
+        float alpha = state.interpolation(System.nanoTime());
+        int to = state.getHead();
+        int from = isStep(state.getPreviousHead(), to) ? state.getPreviousHead() : to;
+        float headCol = state.colOf(from) + (state.colOf(to) - state.colOf(from)) * alpha;
+        float headRow = state.rowOf(from) + (state.rowOf(to) - state.rowOf(from)) * alpha;
+        int x = clamp(Math.round((headCol + 0.5f) * cellWidth) - getWidth() / 2,
+                      state.getColCount() * cellWidth - getWidth());
+        int y = clamp(Math.round((headRow + 0.5f) * cellHeight) - getHeight() / 2,
+                      state.getRowCount() * cellHeight - getHeight());
+        if (x == cameraX && y == cameraY) {
+            return false;
         }
+        cameraX = x;
+        cameraY = y;
+        return true;
+    }
+
+    //false for a move off one edge of a wrapping level onto the other, which jumps instead of sliding across the board
+    private boolean isStep(int from, int to) {
+        return Math.abs(state.rowOf(from) - state.rowOf(to)) + Math.abs(state.colOf(from) - state.colOf(to)) <= 1;
     }
 
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    public GameSnapshot getSnapshot() { return state; }
+
     @Override
     protected void paintComponent(Graphics g) {
+        long start = Telemetry.start();
         super.paintComponent(g);
         
         calculateCellSize();
         
         Graphics2D g2d = (Graphics2D) g;
+        sprites.validate(cellWidth, cellHeight, g2d.getTransform().getScaleX(), getGraphicsConfiguration());
         
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
+        //only the cells under the clip are drawn, food one cell further out for its glow
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstRow = Math.max(0, (clip.y + cameraY) / cellHeight);
+        int lastRow = Math.min(state.getRowCount() - 1, (clip.y + clip.height + cameraY) / cellHeight);
+        int firstCol = Math.max(0, (clip.x + cameraX) / cellWidth);
+        int lastCol = Math.min(state.getColCount() - 1, (clip.x + clip.width + cameraX) / cellWidth);
+        
+        drawBackgroundLayer(g2d);
+        g2d.translate(-cameraX, -cameraY);
+        drawWalls(g2d, firstRow, lastRow, firstCol, lastCol);
+        drawFood(g2d, firstRow - 1, lastRow + 1, firstCol - 1, lastCol + 1);
+        drawSnake(g2d, firstRow, lastRow, firstCol, lastCol);
+        g2d.translate(cameraX, cameraY);
+        Telemetry.recordPaint(start);
+    }
+
+    //take the latest snapshot and repaint only the cells it changed, plus the old head which is now a body segment
+    public void repaintChanges() {
+        state = snapshots.acquire();
+        calculateCellSize();
+        
+        if (state.getSequence() == lastSequence) {
+            return;
+        }
+        if (updateCamera() || state.getSequence() != lastSequence + 1 || state.isChangedOverflow()) {
+            //scrolled, or missed a snapshot and its changes are gone
+            repaint();
+        } else {
+            for (int i = 0; i < state.getChangedCount(); i++) {
+                repaintCell(state.getChanged(i));
+            }
+            if (lastHead != state.getHead()) {
+                repaintCell(lastHead);
+                repaintCell(state.getHead());
+            }
+        }
+        lastSequence = state.getSequence();
+        lastHead = state.getHead();
+        motionSettled = false;
+    }
+
+    //for a render thread that draws the panel into its own surface rather than through repaint():
+    //take the latest snapshot and follow the head, without scheduling anything with the RepaintManager
+    public void prepareFrame() {
+        state = snapshots.acquire();
+        calculateCellSize();
+        updateCamera();
+        lastSequence = state.getSequence();
+        lastHead = state.getHead();
+    }
+
+    //repaint just the visible food cells and their glow for the pulse animation, or everything if the view scrolled
+    public void repaintAnimations() {
+        calculateCellSize();
+        if (!motionSettled && updateCamera()) {
+            repaint();
+            motionSettled = state.interpolation(System.nanoTime()) >= 1f;
+            return;
+        }
+        ChunkIndex foodIndex = state.getFoodIndex();
+        int firstChunkRow = (cameraY / cellHeight - 1) >> ChunkIndex.CHUNK_SHIFT;
+        int lastChunkRow = ((cameraY + getHeight()) / cellHeight + 1) >> ChunkIndex.CHUNK_SHIFT;
+        int firstChunkCol = (cameraX / cellWidth - 1) >> ChunkIndex.CHUNK_SHIFT;
+        int lastChunkCol = ((cameraX + getWidth()) / cellWidth + 1) >> ChunkIndex.CHUNK_SHIFT;
+        for (int chunkRow = Math.max(0, firstChunkRow);
+             chunkRow <= Math.min(foodIndex.getChunkRowCount() - 1, lastChunkRow); chunkRow++) {
+            for (int chunkCol = Math.max(0, firstChunkCol);
+                 chunkCol <= Math.min(foodIndex.getChunkColCount() - 1, lastChunkCol); chunkCol++) {
+                int chunk = foodIndex.chunk(chunkRow, chunkCol);
+                for (int i = foodIndex.getStart(chunk); i < foodIndex.getEnd(chunk); i++) {
+                    repaintCell(foodIndex.get(i));
+                }
+            }
+        }
+        if (!motionSettled) {
+            repaintCell(state.getPreviousHead());
+            repaintCell(state.getHead());
+            repaintCell(state.getPreviousTail());
+            repaintCell(state.getTail());
+            motionSettled = state.interpolation(System.nanoTime()) >= 1f;
+        }
+    }
+
+    //cell bounds grown by one cell each side, which covers the food glow
+    private void repaintCell(int cell) {
+        int x = state.colOf(cell) * cellWidth - cameraX;
+        int y = state.rowOf(cell) * cellHeight - cameraY;
+        repaint(x - cellWidth, y - cellHeight, 3 * cellWidth, 3 * cellHeight);
+    }
+
+    private void drawBackgroundLayer(Graphics2D g2d) {
+        double scale = g2d.getTransform().getScaleX();
+        if (backgroundLayer == null || layerWidth != getWidth() || layerHeight != getHeight()
+                || layerCellWidth != cellWidth || layerCellHeight != cellHeight || layerScale != scale) {
+            layerWidth = getWidth();
+            layerHeight = getHeight();
+            layerCellWidth = cellWidth;
+            layerCellHeight = cellHeight;
+            layerScale = scale;
+            backgroundLayer = renderBackgroundLayer(scale);
+        }
+        //the layer is a cell larger than the panel, shifted so its grid lines up with the scrolled board
+        g2d.drawImage(backgroundLayer, -(cameraX % cellWidth), -(cameraY % cellHeight),
+                      layerWidth + cellWidth, layerHeight + cellHeight, null);
+    }
+
+    private BufferedImage renderBackgroundLayer(double scale) {
+        int width = Math.max(1, (int) Math.ceil((layerWidth + cellWidth) * scale));
+        int height = Math.max(1, (int) Math.ceil((layerHeight + cellHeight) * scale));
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        BufferedImage image = config != null
+            ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.scale(scale, scale);
         drawBackground(g2d);
         drawGrid(g2d);
-        drawFood(g2d);
-        drawSnake(g2d);
+        g2d.dispose();
+        return image;
     }
 
     private void drawBackground(Graphics2D g2d) {
         GradientPaint gradient = new GradientPaint(0, 0, new Color(0, 20, 40),
                                                  getWidth(), getHeight(), new Color(0, 40, 60));
         g2d.setPaint(gradient);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
+        g2d.fillRect(0, 0, getWidth() + cellWidth, getHeight() + cellHeight);
     }
 
+    //grid for the cells a viewport can show, not the whole board
     private void drawGrid(Graphics2D g2d) {
         g2d.setColor(gridColor);
-        for (int row = 0; row < board.ROW_COUNT; row++) {
-            for (int col = 0; col < board.COL_COUNT; col++) {
+        int rows = Math.min(state.getRowCount(), getHeight() / cellHeight + 2);
+        int cols = Math.min(state.getColCount(), getWidth() / cellWidth + 2);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
                 g2d.drawRect(col * cellWidth, row * cellHeight, cellWidth, cellHeight);
             }
         }
     }
 
-    private void drawSnake(Graphics2D g2d) {
-        java.util.List<Cell> snakeParts = snake.getSnakePartList();
+    //head and tail slide between cells by how far the clock is into the current tick
+    private void drawSnake(Graphics2D g2d, int firstRow, int lastRow, int firstCol, int lastCol) {
+        Image segment = sprites.getBodySegment();
+        float alpha = state.interpolation(System.nanoTime());
         
-        for (int i = 1; i < snakeParts.size(); i++) {
-            Cell cell = snakeParts.get(i);
-            int x = cell.getCol() * cellWidth;
-            int y = cell.getRow() * cellHeight;
-            
-            GradientPaint snakeGradient = new GradientPaint(
-                x, y, new Color(0, 180, 0),
-                x + cellWidth, y + cellHeight, new Color(0, 240, 0));
-            g2d.setPaint(snakeGradient);
-            
-            int roundSize = Math.max(8, Math.min(cellWidth, cellHeight) / 3);
-            RoundRectangle2D.Float segment = new RoundRectangle2D.Float(
-                x + 1, y + 1, cellWidth - 2, cellHeight - 2, roundSize, roundSize);
-            g2d.fill(segment);
-            
-            g2d.setColor(new Color(255, 255, 255, 60));
-            g2d.fillRect(x + cellWidth/6, y + cellHeight/6, cellWidth/3, cellHeight/3);
+        ChunkIndex bodyIndex = state.getBodyIndex();
+        for (int chunkRow = firstRow >> ChunkIndex.CHUNK_SHIFT; chunkRow <= lastRow >> ChunkIndex.CHUNK_SHIFT; chunkRow++) {
+            for (int chunkCol = firstCol >> ChunkIndex.CHUNK_SHIFT; chunkCol <= lastCol >> ChunkIndex.CHUNK_SHIFT; chunkCol++) {
+                int chunk = bodyIndex.chunk(chunkRow, chunkCol);
+                for (int i = bodyIndex.getStart(chunk); i < bodyIndex.getEnd(chunk); i++) {
+                    int cell = bodyIndex.get(i);
+                    int row = state.rowOf(cell);
+                    int col = state.colOf(cell);
+                    if (row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+                        g2d.drawImage(segment, col * cellWidth, row * cellHeight, cellWidth, cellHeight, null);
+                    }
+                }
+            }
         }
         
-        if (!snakeParts.isEmpty()) {
-            Cell head = snakeParts.get(0);
-            int x = head.getCol() * cellWidth;
-            int y = head.getRow() * cellHeight;
-            
-            g2d.setColor(new Color(0, 180, 0));
-            int roundSize = Math.max(8, Math.min(cellWidth, cellHeight) / 3);
-            g2d.fillRoundRect(x + 1, y + 1, cellWidth - 2, cellHeight - 2, roundSize, roundSize);
-            
-            g2d.setColor(Color.WHITE);
-            int eyeSize = Math.max(2, cellWidth / 5);
-            g2d.fillOval(x + cellWidth/5, y + cellHeight/4, eyeSize, eyeSize);
-            g2d.fillOval(x + 3*cellWidth/5, y + cellHeight/4, eyeSize, eyeSize);
-            
-            g2d.setColor(Color.BLACK);
-            int pupilSize = Math.max(1, eyeSize / 2);
-            g2d.fillOval(x + cellWidth/5 + eyeSize/4, y + cellHeight/4 + eyeSize/4, pupilSize, pupilSize);
-            g2d.fillOval(x + 3*cellWidth/5 + eyeSize/4, y + cellHeight/4 + eyeSize/4, pupilSize, pupilSize);
-        }
-    }
-
-    private void drawFood(Graphics2D g2d) {
-        for (int row = 0; row < board.ROW_COUNT; row++) {
-            for (int col = 0; col < board.COL_COUNT; col++) {
-                if (board.getCells()[row][col].getCellType() == CellType.FOOD) {
-                    int x = col * cellWidth;
-                    int y = row * cellHeight;
-                    
-                    RadialGradientPaint appleGradient = new RadialGradientPaint(
-                        new Point(x + cellWidth/2, y + cellHeight/2), 
-                        Math.min(cellWidth, cellHeight) / 2 * foodPulseValue,
-                        new float[] {0.0f, 1.0f},
-                        new Color[] {new Color(255, 50, 50), new Color(180, 0, 0)}
-                    );
-                    g2d.setPaint(appleGradient);
-                    
-                    int size = (int)(Math.min(cellWidth, cellHeight) * 0.8 * foodPulseValue);
-                    int offsetX = (cellWidth - size) / 2;
-                    int offsetY = (cellHeight - size) / 2;
-                    g2d.fillOval(x + offsetX, y + offsetY, size, size);
-                    
-                    g2d.setColor(new Color(101, 67, 33));
-                    g2d.fillRect(x + cellWidth/2 - cellWidth/10, y + cellHeight/5, cellWidth/5, cellHeight/7);
-                    
-                    g2d.setColor(new Color(255, 255, 255, 100));
-                    g2d.fillOval(x + cellWidth/4, y + cellHeight/4, cellWidth/3, cellHeight/5);
-                    
-                    drawGlow(g2d, x + cellWidth/2, y + cellHeight/2, Color.RED);
+        //the cell the tail just left, shrinking towards the new tail
+        if (state.getPreviousTail() != state.getTail()) {
+            drawSliding(g2d, segment, state.getPreviousTail(), state.getTail(), alpha,
+                        firstRow, lastRow, firstCol, lastCol);
+        }
+        drawSliding(g2d, sprites.getHead(state.getDirection()), state.getPreviousHead(), state.getHead(), alpha,
+                    firstRow, lastRow, firstCol, lastCol);
+    }
+
+    private void drawSliding(Graphics2D g2d, Image sprite, int from, int to, float alpha,
+                             int firstRow, int lastRow, int firstCol, int lastCol) {
+        if (!isStep(from, to)) {
+            from = to;
+        }
+        int fromRow = state.rowOf(from), fromCol = state.colOf(from);
+        int toRow = state.rowOf(to), toCol = state.colOf(to);
+        if (Math.max(fromRow, toRow) < firstRow || Math.min(fromRow, toRow) > lastRow
+                || Math.max(fromCol, toCol) < firstCol || Math.min(fromCol, toCol) > lastCol) {
+            return;
+        }
+        int x = Math.round((fromCol + (toCol - fromCol) * alpha) * cellWidth);
+        int y = Math.round((fromRow + (toRow - fromRow) * alpha) * cellHeight);
+        g2d.drawImage(sprite, x, y, cellWidth, cellHeight, null);
+    }
+
+    //walls are looked up per visible cell in the level, which is only a bit test
+    private void drawWalls(Graphics2D g2d, int firstRow, int lastRow, int firstCol, int lastCol) {
+        Level level = state.getLevel();
+        if (level == null || level.getWallCount() == 0) {
+            return;
+        }
+        Image wall = sprites.getWall();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                if (level.isWall(row * state.getColCount() + col)) {
+                    g2d.drawImage(wall, col * cellWidth, row * cellHeight, cellWidth, cellHeight, null);
                 }
             }
         }
     }
-    
-    private void drawGlow(Graphics2D g2d, int centerX, int centerY, Color color) {
-        Composite originalComposite = g2d.getComposite();
-        
-        int maxRadius = Math.max(cellWidth, cellHeight);
-        
-        for (int i = 0; i < 5; i++) {
-            float alpha = 0.1f - (i * 0.02f);
-            if (alpha > 0) {
-                int size = maxRadius + (i * maxRadius/4);
-                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
-                g2d.setColor(color);
-                g2d.fillOval(centerX - size/2, centerY - size/2, size, size);
+
+    private void drawFood(Graphics2D g2d, int firstRow, int lastRow, int firstCol, int lastCol) {
+        Image apple = sprites.getFood(foodPulseValue);
+        ChunkIndex foodIndex = state.getFoodIndex();
+        int firstChunkRow = Math.max(0, firstRow) >> ChunkIndex.CHUNK_SHIFT;
+        int lastChunkRow = Math.min(state.getRowCount() - 1, lastRow) >> ChunkIndex.CHUNK_SHIFT;
+        int firstChunkCol = Math.max(0, firstCol) >> ChunkIndex.CHUNK_SHIFT;
+        int lastChunkCol = Math.min(state.getColCount() - 1, lastCol) >> ChunkIndex.CHUNK_SHIFT;
+        for (int chunkRow = firstChunkRow; chunkRow <= lastChunkRow; chunkRow++) {
+            for (int chunkCol = firstChunkCol; chunkCol <= lastChunkCol; chunkCol++) {
+                int chunk = foodIndex.chunk(chunkRow, chunkCol);
+                for (int i = foodIndex.getStart(chunk); i < foodIndex.getEnd(chunk); i++) {
+                    int food = foodIndex.get(i);
+                    int row = state.rowOf(food);
+                    int col = state.colOf(food);
+                    if (row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+                        int x = col * cellWidth;
+                        int y = row * cellHeight;
+                        g2d.drawImage(apple, x, y, cellWidth, cellHeight, null);
+                        drawGlow(g2d, x + cellWidth/2, y + cellHeight/2);
+                    }
+                }
             }
         }
-        
-        g2d.setComposite(originalComposite);
+    }
+    
+    private void drawGlow(Graphics2D g2d, int centerX, int centerY) {
+        int size = sprites.getGlowSize();
+        g2d.drawImage(sprites.getGlow(), centerX - size/2, centerY - size/2, size, size, null);
     }
     
     public void updateAnimations() {
-        foodPulseValue += foodPulseDirection * 0.03f;
-        if (foodPulseValue > 1.2f) {
-            foodPulseValue = 1.2f;
+        foodPulseValue += foodPulseDirection * SpriteCache.PULSE_STEP;
+        if (foodPulseValue > SpriteCache.PULSE_MAX) {
+            foodPulseValue = SpriteCache.PULSE_MAX;
             foodPulseDirection = -1;
-        } else if (foodPulseValue < 0.8f) {
-            foodPulseValue = 0.8f;
+        } else if (foodPulseValue < SpriteCache.PULSE_MIN) {
+            foodPulseValue = SpriteCache.PULSE_MIN;
             foodPulseDirection = 1;
         }
     }
@@ -0,0 +1,39 @@
+import java.util.random.RandomGenerator;
+
+// SplitMix64 with its state in the open, so a game can be saved, restored and forked mid-stream.
+// Draws exactly the same numbers as new SplittableRandom(seed), which keeps old replays valid.
+public class GameRandom implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long getState() { return state; }
+
+    public void setState(long state) { this.state = state; }
+
+    //independent generator that continues from the same point
+    public GameRandom copy() { return new GameRandom(state); }
+
+    @Override
+    public long nextLong() { return mix(state += GOLDEN_GAMMA); }
+
+    //the same stream for generators kept as states[i] in one array rather than as objects,
+    //e.g. one per snake or per environment, advancing that state
+    public static long nextLong(long[] states, int i) { return mix(states[i] += GOLDEN_GAMMA); }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int nextInt() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
@@ -0,0 +1,284 @@
+// Headless server hosting one game per connection, all on a single NIO selector thread - no locks, no thread
+// per client. Every tick it steps each running game and sends its client only what changed (see NetProtocol);
+// a client that stops reading is skipped until its backlog drains and then resynced with a full state.
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class GameServer {
+    //unsent bytes a session may pile up before its deltas are dropped in favour of a resync
+    private static final int MAX_PENDING = 64 * 1024;
+
+    private final int rowCount, colCount;
+    private final long periodNanos;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final List<Session> sessions = new ArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+    private final SplittableRandom seedSource;
+    private volatile boolean running = true;
+    //last tick's cost over all sessions, and bytes handed to the kernel so far
+    private volatile long tickNanos;
+    private volatile long bytesSent;
+
+    private static final class Session {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final GameEngine engine;
+        final InputQueue inputs = new InputQueue(4);
+        int direction = GameEngine.DIRECTION_NONE;
+        ByteBuffer out = ByteBuffer.allocate(256);
+        //deltas were dropped, send a FULL once the backlog is gone
+        boolean resync;
+        int slot;
+
+        Session(SocketChannel channel, SelectionKey key, GameEngine engine) {
+            this.channel = channel;
+            this.key = key;
+            this.engine = engine;
+        }
+    }
+
+    public GameServer(InetSocketAddress address, int rowCount, int colCount, long periodNanos, long seed)
+            throws IOException {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.periodNanos = periodNanos;
+        this.seedSource = new SplittableRandom(seed);
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+
+    public int getSessionCount() { return sessions.size(); }
+
+    public long getTickNanos() { return tickNanos; }
+
+    public long getBytesSent() { return bytesSent; }
+
+    //makes run() return, from any thread
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    //serve on the calling thread until stop()
+    public void run() throws IOException {
+        long nextTick = System.nanoTime() + periodNanos;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                handleReady();
+
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    tick();
+                    tickNanos = System.nanoTime() - now;
+                    //fell more than a tick behind, drop the missed ticks rather than bursting
+                    nextTick = Math.max(nextTick + periodNanos, now);
+                }
+            }
+        } finally {
+            for (Session session : sessions) {
+                session.channel.close();
+            }
+            server.close();
+            selector.close();
+        }
+    }
+
+    private void handleReady() throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Session session = (Session) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(session);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(session);
+                }
+            } catch (IOException e) {
+                close(session);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            GameEngine engine = new GameEngine(rowCount, colCount, new GameRandom(seedSource.nextLong()));
+            Session session = new Session(channel, key, engine);
+            key.attach(session);
+            session.slot = sessions.size();
+            sessions.add(session);
+            sendFull(session);
+        }
+    }
+
+    private void read(Session session) throws IOException {
+        readBuffer.clear();
+        int read = session.channel.read(readBuffer);
+        if (read < 0) {
+            close(session);
+            return;
+        }
+        for (int i = 0; i < read; i++) {
+            int b = readBuffer.get(i);
+            if (b == NetProtocol.RESTART) {
+                session.engine.reset(new GameRandom(seedSource.nextLong()));
+                session.direction = GameEngine.DIRECTION_NONE;
+                session.inputs.clear();
+                sendFull(session);
+            } else if (b >= 0 && b <= 4 && b != 2) {
+                session.inputs.offer(b - 2);
+            }
+        }
+    }
+
+    //step every running game and queue its delta
+    private void tick() {
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            GameEngine engine = session.engine;
+            if (engine.isGameOver()) {
+                continue;
+            }
+            //one turn per tick, checked against the way the snake actually moved, as in Game
+            for (int next = session.inputs.poll(); next != GameEngine.DIRECTION_NONE; next = session.inputs.poll()) {
+                int applied = engine.getDirection();
+                if (next != applied && next != -applied) {
+                    session.direction = next;
+                    break;
+                }
+            }
+            TickResult result = engine.step(session.direction);
+            if (result != TickResult.IDLE && !session.resync) {
+                if (session.out.position() > MAX_PENDING) {
+                    session.resync = true;
+                } else {
+                    ensureRoom(session, NetProtocol.maxDeltaSize());
+                    if (!NetProtocol.writeDelta(session.out, engine, result)) {
+                        session.resync = true;
+                    }
+                }
+            }
+            engine.getBoard().clearDirty();
+            try {
+                flush(session);
+            } catch (IOException e) {
+                close(session);
+                i--;
+            }
+        }
+    }
+
+    private void sendFull(Session session) throws IOException {
+        ensureRoom(session, NetProtocol.fullSize(session.engine));
+        NetProtocol.writeFull(session.out, session.engine, periodNanos);
+        session.engine.getBoard().clearDirty();
+        flush(session);
+    }
+
+    private void ensureRoom(Session session, int size) {
+        ByteBuffer out = session.out;
+        if (out.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() << 1, out.position() + size));
+            out.flip();
+            grown.put(out);
+            session.out = grown;
+        }
+    }
+
+    //write what the socket takes and wait for OP_WRITE for the rest
+    private void flush(Session session) throws IOException {
+        ByteBuffer out = session.out;
+        if (out.position() > 0) {
+            out.flip();
+            bytesSent += session.channel.write(out);
+            out.compact();
+        }
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (session.key.interestOps() != ops) {
+            session.key.interestOps(ops);
+        }
+        if (out.position() == 0) {
+            if (session.resync) {
+                session.resync = false;
+                sendFull(session);
+            }
+        }
+    }
+
+    //swap-remove from the session list so closing stays O(1)
+    private void close(Session session) {
+        if (session.slot < 0) {
+            return;
+        }
+        try {
+            session.channel.close();
+        } catch (IOException ignored) {
+        }
+        int last = sessions.size() - 1;
+        Session moved = sessions.get(last);
+        sessions.set(session.slot, moved);
+        moved.slot = session.slot;
+        sessions.remove(last);
+        session.slot = -1;
+    }
+
+    // usage: java GameServer [port] [rows] [cols]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long period = TickRate.fromSystemProperties().periodFor(0);
+
+        GameServer server = new GameServer(new InetSocketAddress(port), rows, cols, period, System.nanoTime());
+        Thread stats = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.printf("%d sessions, last tick %.2f ms, %d KB sent%n", server.getSessionCount(),
+                                  server.getTickNanos() / 1e6, server.getBytesSent() >> 10);
+            }
+        }, "server-stats");
+        stats.setDaemon(true);
+        stats.start();
+        System.out.println("Serving " + rows + "x" + cols + " games on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,139 @@
+// Copy of everything the renderer needs from one tick, filled on the tick thread and read on the EDT.
+// Instances are recycled by SnapshotExchange, so readers must not hold on to one after the next acquire().
+import java.util.Arrays;
+
+public class GameSnapshot {
+    long sequence;
+    int rowCount, colCount;
+    //walls never change during a game, so the level itself is shared rather than copied
+    Level level;
+    int direction;
+    int score;
+    boolean gameOver;
+    boolean won;
+    //when the tick ran and the tick period, for interpolating motion between ticks
+    long tickNanos;
+    long periodNanos;
+    int previousHead, previousTail;
+
+    //snake body head first, as board indices
+    int[] body = new int[16];
+    int length;
+    int[] food = new int[4];
+    int foodCount;
+    //cells whose type changed in the tick that produced this snapshot
+    int[] changed = new int[16];
+    int changedCount;
+    boolean changedOverflow;
+    //food and body (head excluded, it is drawn sliding) by board chunk, for drawing just a viewport
+    final ChunkIndex foodIndex = new ChunkIndex();
+    final ChunkIndex bodyIndex = new ChunkIndex();
+
+    //copy engine state and take the board's dirty-cell log
+    public void copyFrom(GameEngine engine, long sequence, long tickNanos, long periodNanos) {
+        copyFrom(engine.getBoard(), engine.getSnake(), engine.getDirection(), engine.getFruitsEaten(),
+                 engine.isGameOver(), engine.isWon(), engine.getPreviousHead(), engine.getPreviousTail(),
+                 sequence, tickNanos, periodNanos);
+    }
+
+    //same for a game that is not driven by a local engine, e.g. one mirrored from a server
+    public void copyFrom(Board board, Snake snake, int direction, int score, boolean gameOver, boolean won,
+                         int previousHead, int previousTail, long sequence, long tickNanos, long periodNanos) {
+        this.sequence = sequence;
+        this.tickNanos = tickNanos;
+        this.periodNanos = periodNanos;
+        this.previousHead = previousHead;
+        this.previousTail = previousTail;
+        rowCount = board.ROW_COUNT;
+        colCount = board.COL_COUNT;
+        level = board.getLevel();
+        this.direction = direction;
+        this.score = score;
+        this.gameOver = gameOver;
+        this.won = won;
+
+        length = snake.getLength();
+        if (body.length < length) {
+            body = new int[Math.max(length, body.length << 1)];
+        }
+        for (int i = 0; i < length; i++) {
+            body[i] = snake.getPart(i);
+        }
+        bodyIndex.build(body, 1, length, rowCount, colCount);
+
+        foodCount = board.getFoodCount();
+        if (food.length < foodCount) {
+            food = new int[Math.max(foodCount, food.length << 1)];
+        }
+        for (int i = 0; i < foodCount; i++) {
+            food[i] = board.getFood(i);
+        }
+        foodIndex.build(food, 0, foodCount, rowCount, colCount);
+
+        changedCount = board.getDirtyCount();
+        changedOverflow = board.isDirtyOverflow();
+        if (changed.length < changedCount) {
+            changed = Arrays.copyOf(changed, changedCount);
+        }
+        for (int i = 0; i < changedCount; i++) {
+            changed[i] = board.getDirtyCell(i);
+        }
+        board.clearDirty();
+    }
+
+    public long getSequence() { return sequence; }
+
+    public int getRowCount() { return rowCount; }
+
+    public int getColCount() { return colCount; }
+
+    //null for an open board
+    public Level getLevel() { return level; }
+
+    public int getDirection() { return direction; }
+
+    public int getScore() { return score; }
+
+    public boolean isGameOver() { return gameOver; }
+
+    public boolean isWon() { return won; }
+
+    public int getLength() { return length; }
+
+    public int getPart(int i) { return body[i]; }
+
+    public int getHead() { return body[0]; }
+
+    public int getTail() { return body[length - 1]; }
+
+    public int getPreviousHead() { return previousHead; }
+
+    public int getPreviousTail() { return previousTail; }
+
+    //fraction of the way from the previous tick to this one at time nanos, 0 to 1
+    public float interpolation(long nanos) {
+        if (periodNanos <= 0) {
+            return 1f;
+        }
+        float alpha = (float) (nanos - tickNanos) / periodNanos;
+        return Math.max(0f, Math.min(1f, alpha));
+    }
+
+    public int getFoodCount() { return foodCount; }
+
+    public int getFood(int i) { return food[i]; }
+
+    public ChunkIndex getFoodIndex() { return foodIndex; }
+
+    public ChunkIndex getBodyIndex() { return bodyIndex; }
+
+    public int getChangedCount() { return changedCount; }
+
+    public int getChanged(int i) { return changed[i]; }
+
+    public boolean isChangedOverflow() { return changedOverflow; }
+
+    public int rowOf(int index) { return index / colCount; }
+
+    public int colOf(int index) { return index % colCount; }
+}
@@ -0,0 +1,52 @@
+// Bounded lock-free queue of directions from the input thread (EDT) to the tick thread.
+// Single producer, single consumer: each index is only ever written by one side.
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InputQueue {
+    private final int[] directions;
+    private final long[] times;
+    private long polledNanos; // consumer only
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, written by the producer
+
+    //capacity is rounded up to a power of two
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        directions = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    //returns false and drops the input if the queue is full
+    public boolean offer(int direction) {
+        long t = tail.get();
+        if (t - head.get() == directions.length) {
+            return false;
+        }
+        times[(int) t & mask] = System.nanoTime();
+        directions[(int) t & mask] = direction;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    //next direction, or GameEngine.DIRECTION_NONE if the queue is empty
+    public int poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return GameEngine.DIRECTION_NONE;
+        }
+        int direction = directions[(int) h & mask];
+        polledNanos = times[(int) h & mask];
+        head.lazySet(h + 1);
+        return direction;
+    }
+
+    //System.nanoTime() when the input last returned by poll() was offered
+    public long getPolledNanos() { return polledNanos; }
+
+    public boolean isEmpty() { return head.get() == tail.get(); }
+
+    //only safe while the producer is not offering, e.g. between games
+    public void clear() { head.set(tail.get()); }
+}
@@ -0,0 +1,73 @@
+// Lock-free latency histogram with power-of-two nanosecond buckets
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    //bucket i counts samples in [2^(i-1), 2^i) nanoseconds, bucket 0 holds zero
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public String getName() { return name; }
+
+    public long getCount() { return count.sum(); }
+
+    public long getMaxNanos() { return maxNanos.get(); }
+
+    public double getMeanNanos() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : (double) totalNanos.sum() / samples;
+    }
+
+    //upper bound of the bucket holding the given percentile (0-100)
+    public long getPercentileNanos(double percentile) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(samples * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return i == 0 ? 0 : Math.min((1L << i) - 1, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-16s n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+            name, getCount(), getMeanNanos() / 1e3, getPercentileNanos(50) / 1e3,
+            getPercentileNanos(99) / 1e3, getMaxNanos() / 1e3);
+    }
+}
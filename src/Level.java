@@ -0,0 +1,244 @@
+// A board layout loaded from a level file: walls, where the snake starts, and whether the edges wrap around.
+// Layout (big endian header, then the walls as one bit per cell in board index order, least significant bit first):
+//   magic, version, rows, cols, start cell, flags, wall count, padding up to HEADER_SIZE,
+//   (rows * cols + 7) / 8 bytes of walls
+// The file is mapped rather than read: opening only counts the wall bits, a word at a time, to check the header,
+// and Board pages are only decoded when a board first asks for them.
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+public class Level {
+    static final int MAGIC = 0x534E4B4C; // "SNKL"
+    static final byte VERSION = 2;
+    //magic, version, rows, cols, start, flags, wall count, then padding so the walls start on a long boundary
+    static final int HEADER_SIZE = 32;
+    //flag: moving off one edge comes back on the opposite one instead of ending the game
+    static final int WRAP = 1;
+    private static final byte WALL = (byte) CellType.WALL.ordinal();
+    //shared by every board for pages without walls, never written to
+    private static final byte[] EMPTY_PAGE = new byte[Board.PAGE_SIZE];
+
+    final int ROW_COUNT, COL_COUNT;
+    private final int start;
+    private final boolean wrap;
+    //the wall bits, read in place from the mapping
+    private final ByteBuffer walls;
+    //from the header, checked against the map when the level is opened
+    private final int wallCount;
+    //Board pages with the walls set, decoded on first use
+    private final byte[][] pages;
+
+    public Level(ByteBuffer data) throws IOException {
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.get(4) != VERSION) {
+            throw new IOException("Not a snake level (version " + VERSION + ")");
+        }
+        ROW_COUNT = data.getInt(5);
+        COL_COUNT = data.getInt(9);
+        start = data.getInt(13);
+        wrap = (data.get(17) & WRAP) != 0;
+        wallCount = data.getInt(18);
+        long cellCount = (long) ROW_COUNT * COL_COUNT;
+        if (ROW_COUNT <= 0 || COL_COUNT <= 0 || cellCount > Integer.MAX_VALUE) {
+            throw new IOException("Unsupported level size " + ROW_COUNT + " x " + COL_COUNT);
+        }
+        if (data.capacity() < HEADER_SIZE + (cellCount + 7) / 8) {
+            throw new IOException("Level file is truncated");
+        }
+        walls = data.duplicate().position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN);
+        //boards take their free cell count from it, so one too low would send food placement looking for a free
+        //cell that is not there
+        int counted = countWalls((int) cellCount);
+        if (wallCount != counted) {
+            throw new IOException("Level header says " + wallCount + " walls, the map has " + counted);
+        }
+        if (start < 0 || start >= cellCount || isWall(start)) {
+            throw new IOException("Level start cell " + start + " is not a free cell");
+        }
+        pages = new byte[(int) ((cellCount + Board.PAGE_MASK) >>> Board.PAGE_SHIFT)][];
+    }
+
+    public static Level open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Level(mapped);
+        }
+    }
+
+    public boolean isWall(int cell) { return (walls.get(cell >>> 3) & (1 << (cell & 7))) != 0; }
+
+    public int getStart() { return start; }
+
+    public boolean isWrap() { return wrap; }
+
+    public int getWallCount() { return wallCount; }
+
+    //cells of Board page page with the walls set; shared between boards, which copy it before writing
+    synchronized byte[] getPage(int page) {
+        byte[] cells = pages[page];
+        if (cells == null) {
+            cells = decodePage(page);
+            pages[page] = cells;
+        }
+        return cells;
+    }
+
+    private byte[] decodePage(int page) {
+        int first = page << Board.PAGE_SHIFT;
+        int end = (int) Math.min((long) first + Board.PAGE_SIZE, (long) ROW_COUNT * COL_COUNT);
+        byte[] cells = EMPTY_PAGE;
+        //pages start on a long boundary of the wall bits, so whole empty longs are skipped
+        for (int cell = first; cell < end; cell += 64) {
+            long bits = cell + 64 <= end ? walls.getLong(cell >>> 3) : partialWord(cell, end);
+            while (bits != 0) {
+                if (cells == EMPTY_PAGE) {
+                    cells = new byte[Board.PAGE_SIZE];
+                }
+                cells[cell - first + Long.numberOfTrailingZeros(bits)] = WALL;
+                bits &= bits - 1;
+            }
+        }
+        return cells;
+    }
+
+    //walls set in the map, a word of 64 cells at a time
+    private int countWalls(int cellCount) {
+        int count = 0;
+        int cell = 0;
+        for (; cell + 64 <= cellCount; cell += 64) {
+            count += Long.bitCount(walls.getLong(cell >>> 3));
+        }
+        return count + Long.bitCount(partialWord(cell, cellCount));
+    }
+
+    //wall bits of cells from to end, fewer than 64 at the end of the board
+    private long partialWord(int from, int end) {
+        long bits = 0;
+        for (int cell = from; cell < end; cell++) {
+            if (isWall(cell)) {
+                bits |= 1L << (cell - from);
+            }
+        }
+        return bits;
+    }
+
+    //write a level with a wall wherever isWall is true
+    public static void save(Path path, int rowCount, int colCount, int start, boolean wrap, IntPredicate isWall)
+            throws IOException {
+        long cells = (long) rowCount * colCount;
+        if (rowCount <= 0 || colCount <= 0 || cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported level size " + rowCount + " x " + colCount);
+        }
+        int cellCount = (int) cells;
+        if (start < 0 || start >= cellCount || isWall.test(start)) {
+            throw new IllegalArgumentException("Level start cell " + start + " is not a free cell");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.putInt(rowCount);
+        header.putInt(colCount);
+        header.putInt(start);
+        header.put((byte) (wrap ? WRAP : 0));
+        header.position(HEADER_SIZE).flip();
+
+        ByteBuffer bits = ByteBuffer.allocate(64 * 1024);
+        int wallCount = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            //the header goes in last, once the walls are counted
+            channel.position(HEADER_SIZE);
+            for (int cell = 0; cell < cellCount; cell += 8) {
+                int b = 0;
+                for (int i = 0; i < 8 && cell + i < cellCount; i++) {
+                    if (isWall.test(cell + i)) {
+                        b |= 1 << i;
+                        wallCount++;
+                    }
+                }
+                bits.put((byte) b);
+                if (!bits.hasRemaining()) {
+                    bits.flip();
+                    while (bits.hasRemaining()) {
+                        channel.write(bits);
+                    }
+                    bits.clear();
+                }
+            }
+            bits.flip();
+            while (bits.hasRemaining()) {
+                channel.write(bits);
+            }
+            header.putInt(18, wallCount);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    //free cell closest to the centre of the board, -1 if every cell is a wall
+    private static int nearestFreeCell(int rows, int cols, IntPredicate isWall) {
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            long distance = Math.abs(cell / cols - rows / 2) + Math.abs(cell % cols - cols / 2);
+            if (distance < bestDistance && !isWall.test(cell)) {
+                best = cell;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // usage: java Level <map.txt> <out.level> [wrap]
+    //text map to level: # is a wall, S the start (the free cell nearest the centre if there is none),
+    //anything else is free. Short lines are padded with free cells
+    public static void main(String[] args) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+        }
+        int rows = lines.size();
+        int cols = lines.stream().mapToInt(String::length).max().orElse(0);
+        if (rows == 0 || cols == 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IOException("Map " + args[0] + " is " + rows + " x " + cols + ", not a playable size");
+        }
+        IntPredicate isWall = cell -> {
+            String line = lines.get(cell / cols);
+            int col = cell % cols;
+            return col < line.length() && line.charAt(col) == '#';
+        };
+        int start = -1;
+        for (int row = 0; row < rows; row++) {
+            int col = lines.get(row).indexOf('S');
+            if (col >= 0) {
+                start = row * cols + col;
+            }
+        }
+        if (start < 0) {
+            start = nearestFreeCell(rows, cols, isWall);
+        }
+        if (start < 0) {
+            throw new IOException("Map " + args[0] + " has no free cell to start on");
+        }
+        boolean wrap = args.length > 2 && args[2].equals("wrap");
+        save(Paths.get(args[1]), rows, cols, start, wrap, isWall);
+
+        Level level = open(Paths.get(args[1]));
+        System.out.printf("%dx%d level, %d walls, start %d%s%n", rows, cols, level.getWallCount(), start,
+                          wrap ? ", wrapping edges" : "");
+    }
+}
@@ -0,0 +1,117 @@
+// Wire format between GameServer and its clients. Numbers after the first one or two bytes of a message
+// are unsigned LEB128 varints, cells are board indices.
+// Server to client, a FULL on connect and after a restart or resync, then a DELTA for every tick that changed something:
+//   FULL:  type, rows, cols, tick period in microseconds, direction + 2, status bits, score,
+//          length, body head first, food count, food
+//   DELTA: type, bits (direction + 2 in the low three, then HEAD, TAIL, OVER, WON), head if HEAD,
+//          count of food placed this tick, those cells
+// HEAD without TAIL means the snake grew onto food. Client to server: one byte per key press, direction + 2 or RESTART.
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public final class NetProtocol {
+    public static final byte FULL = 1;
+    public static final byte DELTA = 2;
+    public static final byte RESTART = 7;
+
+    static final int DIRECTION_MASK = 7;
+    static final int HEAD = 1 << 3;
+    static final int TAIL = 1 << 4;
+    static final int OVER = 1 << 5;
+    static final int WON = 1 << 6;
+
+    //a varint of an int takes at most this many bytes
+    private static final int MAX_VARINT = 5;
+
+    private NetProtocol() {}
+
+    //bytes writeFull() needs at most
+    public static int fullSize(GameEngine engine) {
+        return 3 + MAX_VARINT * (6 + engine.getSnake().getLength() + engine.getBoard().getFoodCount());
+    }
+
+    //bytes writeDelta() needs at most - food placed in one tick never exceeds the board's dirty log
+    public static int maxDeltaSize() {
+        return 2 + MAX_VARINT * (2 + 64);
+    }
+
+    public static void writeFull(ByteBuffer out, GameEngine engine, long periodNanos) {
+        Board board = engine.getBoard();
+        Snake snake = engine.getSnake();
+        out.put(FULL);
+        putVarInt(out, engine.ROW_COUNT);
+        putVarInt(out, engine.COL_COUNT);
+        putVarInt(out, (int) (periodNanos / 1000));
+        out.put((byte) (engine.getDirection() + 2));
+        out.put((byte) status(engine));
+        putVarInt(out, engine.getFruitsEaten());
+        putVarInt(out, snake.getLength());
+        for (int i = 0; i < snake.getLength(); i++) {
+            putVarInt(out, snake.getPart(i));
+        }
+        putVarInt(out, board.getFoodCount());
+        for (int i = 0; i < board.getFoodCount(); i++) {
+            putVarInt(out, board.getFood(i));
+        }
+    }
+
+    //what the last step() changed, read from the board's dirty log; returns false without writing anything
+    //if the log overflowed, in which case the caller sends a FULL instead
+    public static boolean writeDelta(ByteBuffer out, GameEngine engine, TickResult result) {
+        Board board = engine.getBoard();
+        if (board.isDirtyOverflow()) {
+            return false;
+        }
+        int bits = (engine.getDirection() + 2) | status(engine);
+        if (result == TickResult.MOVED || result == TickResult.ATE || result == TickResult.WON) {
+            bits |= HEAD;
+        }
+        if (result == TickResult.MOVED) {
+            bits |= TAIL;
+        }
+        out.put(DELTA);
+        out.put((byte) bits);
+        if ((bits & HEAD) != 0) {
+            putVarInt(out, engine.getSnake().getHead());
+        }
+        int placed = 0;
+        for (int i = 0; i < board.getDirtyCount(); i++) {
+            if (board.getCellType(board.getDirtyCell(i)) == CellType.FOOD) {
+                placed++;
+            }
+        }
+        putVarInt(out, placed);
+        for (int i = 0; i < board.getDirtyCount(); i++) {
+            int cell = board.getDirtyCell(i);
+            if (board.getCellType(cell) == CellType.FOOD) {
+                putVarInt(out, cell);
+            }
+        }
+        return true;
+    }
+
+    private static int status(GameEngine engine) {
+        return (engine.isGameOver() ? OVER : 0) | (engine.isWon() ? WON : 0);
+    }
+
+    public static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
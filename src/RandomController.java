@@ -0,0 +1,35 @@
+import java.util.random.RandomGenerator;
+
+// Baseline strategy - keeps going straight, turning at random only when the next cell is fatal or on a coin flip
+public class RandomController implements Controller {
+    private static final int[] DIRECTIONS = {
+        GameEngine.DIRECTION_UP, GameEngine.DIRECTION_RIGHT,
+        GameEngine.DIRECTION_DOWN, GameEngine.DIRECTION_LEFT
+    };
+    private final RandomGenerator random;
+    private final double turnChance;
+
+    public RandomController(RandomGenerator random, double turnChance) {
+        this.random = random;
+        this.turnChance = turnChance;
+    }
+
+    @Override
+    public int nextDirection(GameEngine engine) {
+        int current = engine.getDirection();
+        if (current != GameEngine.DIRECTION_NONE && !engine.isFatal(current) && random.nextDouble() >= turnChance) {
+            return current;
+        }
+
+        //try the directions starting from a random one, skipping the reverse of the current heading
+        int start = random.nextInt(DIRECTIONS.length);
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            int direction = DIRECTIONS[(start + i) % DIRECTIONS.length];
+            if (direction != -current && !engine.isFatal(direction)) {
+                return direction;
+            }
+        }
+        //boxed in, any move ends the game
+        return current == GameEngine.DIRECTION_NONE ? DIRECTIONS[start] : current;
+    }
+}
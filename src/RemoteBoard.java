@@ -0,0 +1,103 @@
+// Client-side copy of a game hosted by GameServer, rebuilt from NetProtocol messages on a local Board and Snake
+// so it can be published to a GamePanel through GameSnapshot like a local game
+import java.io.DataInput;
+import java.io.IOException;
+
+public class RemoteBoard {
+    private Board board;
+    private Snake snake;
+    private int direction;
+    private int score;
+    private boolean gameOver;
+    private boolean won;
+    private long periodNanos;
+    private int previousHead, previousTail;
+
+    //apply the next message, blocking until it has arrived
+    public void read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        if (type == NetProtocol.FULL) {
+            readFull(in);
+        } else if (type == NetProtocol.DELTA) {
+            readDelta(in);
+        } else {
+            throw new IOException("Unknown message type " + type);
+        }
+    }
+
+    private void readFull(DataInput in) throws IOException {
+        int rows = NetProtocol.readVarInt(in);
+        int cols = NetProtocol.readVarInt(in);
+        periodNanos = NetProtocol.readVarInt(in) * 1000L;
+        direction = in.readByte() - 2;
+        setStatus(in.readByte());
+        score = NetProtocol.readVarInt(in);
+        int length = NetProtocol.readVarInt(in);
+        int[] body = new int[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = NetProtocol.readVarInt(in);
+        }
+
+        //rebuild the body tail first so every grow() puts the next part in front
+        if (board == null || board.ROW_COUNT != rows || board.COL_COUNT != cols) {
+            board = new Board(rows, cols);
+            snake = new Snake(board, body[length - 1]);
+        } else {
+            board.clear();
+            snake.reset(body[length - 1]);
+        }
+        for (int i = length - 2; i >= 0; i--) {
+            snake.grow(body[i]);
+        }
+        int food = NetProtocol.readVarInt(in);
+        for (int i = 0; i < food; i++) {
+            board.setCellType(NetProtocol.readVarInt(in), CellType.FOOD);
+        }
+        previousHead = snake.getHead();
+        previousTail = snake.getTail();
+    }
+
+    private void readDelta(DataInput in) throws IOException {
+        int bits = in.readByte();
+        direction = (bits & NetProtocol.DIRECTION_MASK) - 2;
+        setStatus(bits);
+        previousHead = snake.getHead();
+        previousTail = snake.getTail();
+        if ((bits & NetProtocol.HEAD) != 0) {
+            int head = NetProtocol.readVarInt(in);
+            if ((bits & NetProtocol.TAIL) != 0) {
+                snake.move(head);
+            } else {
+                snake.grow(head);
+                score++;
+            }
+        }
+        int food = NetProtocol.readVarInt(in);
+        for (int i = 0; i < food; i++) {
+            board.setCellType(NetProtocol.readVarInt(in), CellType.FOOD);
+        }
+    }
+
+    private void setStatus(int bits) {
+        gameOver = (bits & NetProtocol.OVER) != 0;
+        won = (bits & NetProtocol.WON) != 0;
+    }
+
+    //fill snapshot with the current state and take the board's dirty log
+    public void copyTo(GameSnapshot snapshot, long sequence, long tickNanos) {
+        snapshot.copyFrom(board, snake, direction, score, gameOver, won, previousHead, previousTail,
+                          sequence, tickNanos, periodNanos);
+    }
+
+    public Board getBoard() { return board; }
+
+    public Snake getSnake() { return snake; }
+
+    public int getDirection() { return direction; }
+
+    public int getScore() { return score; }
+
+    public boolean isGameOver() { return gameOver; }
+
+    public boolean isWon() { return won; }
+}
@@ -0,0 +1,126 @@
+// Window for a game hosted by GameServer - keys go to the server, and the deltas coming back are mirrored
+// in a RemoteBoard and drawn by the same GamePanel as a local game
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+
+public class RemoteGame {
+    private static final int FRAMES_PER_SECOND = Integer.getInteger("snake.fps", 60);
+
+    private final Socket socket;
+    private final OutputStream output;
+    private final DataInputStream input;
+    private final RemoteBoard remote = new RemoteBoard();
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private long sequence;
+    private JFrame frame;
+    private GamePanel gamePanel;
+
+    public RemoteGame(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        output = socket.getOutputStream();
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        //the panel needs a first snapshot, so wait for the server's full state
+        remote.read(input);
+        publishSnapshot();
+    }
+
+    //on the EDT
+    private void show() {
+        frame = new JFrame();
+        gamePanel = new GamePanel(snapshots);
+        frame.setLayout(new BorderLayout());
+        frame.add(gamePanel, BorderLayout.CENTER);
+        frame.pack();
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setVisible(true);
+        updateTitle();
+
+        gamePanel.setFocusable(true);
+        gamePanel.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_W:
+                        send(GameEngine.DIRECTION_UP + 2);
+                        break;
+                    case KeyEvent.VK_S:
+                        send(GameEngine.DIRECTION_DOWN + 2);
+                        break;
+                    case KeyEvent.VK_A:
+                        send(GameEngine.DIRECTION_LEFT + 2);
+                        break;
+                    case KeyEvent.VK_D:
+                        send(GameEngine.DIRECTION_RIGHT + 2);
+                        break;
+                    case KeyEvent.VK_R:
+                        send(NetProtocol.RESTART);
+                        break;
+                }
+            }
+        });
+        gamePanel.requestFocusInWindow();
+
+        new Timer(Math.max(1, 1000 / FRAMES_PER_SECOND), e -> {
+            gamePanel.updateAnimations();
+            gamePanel.repaintAnimations();
+        }).start();
+    }
+
+    private void send(int message) {
+        try {
+            output.write(message);
+        } catch (IOException e) {
+            frame.setTitle("Snake - disconnected");
+        }
+    }
+
+    //reader thread: apply every message as it arrives and hand the result to the EDT
+    private void receive() {
+        try {
+            while (true) {
+                remote.read(input);
+                publishSnapshot();
+                SwingUtilities.invokeLater(() -> {
+                    gamePanel.repaintChanges();
+                    updateTitle();
+                });
+            }
+        } catch (EOFException e) {
+            SwingUtilities.invokeLater(() -> frame.setTitle("Snake - server closed the game"));
+        } catch (IOException e) {
+            SwingUtilities.invokeLater(() -> frame.setTitle("Snake - " + e.getMessage()));
+        }
+    }
+
+    private void publishSnapshot() {
+        remote.copyTo(snapshots.getBack(), ++sequence, System.nanoTime());
+        snapshots.publish();
+    }
+
+    private void updateTitle() {
+        GameSnapshot state = gamePanel.getSnapshot();
+        String status = state.isWon() ? " - You Win! (R to restart)"
+                      : state.isGameOver() ? " - Game Over! (R to restart)" : "";
+        frame.setTitle("Snake - Score: " + state.getScore() + status);
+    }
+
+    // usage: java RemoteGame [host] [port]
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        RemoteGame game = new RemoteGame(host, port);
+        SwingUtilities.invokeAndWait(game::show);
+        Thread reader = new Thread(game::receive, "remote-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+}
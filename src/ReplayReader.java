@@ -0,0 +1,138 @@
+// Memory-mapped reader for ReplayRecorder files - seeks by fast-forwarding a headless GameEngine
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class ReplayReader {
+    private final ByteBuffer data;
+    private final long seed;
+    private final int rowCount, colCount;
+    private final int foodCount;
+    private final long tickCount;
+    private final int inputCount;
+    private final TickRate tickRate;
+
+    private GameEngine engine;
+    private long tick;
+    private int direction;
+    private long nextChangeTick;
+    private int nextDirection;
+
+    public ReplayReader(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.getInt(0) != ReplayRecorder.MAGIC || data.get(4) != ReplayRecorder.VERSION) {
+            throw new IOException("Not a snake replay (version " + ReplayRecorder.VERSION + ")");
+        }
+        seed = data.getLong(5);
+        rowCount = data.getInt(13);
+        colCount = data.getInt(17);
+        foodCount = data.getInt(21);
+        tickCount = data.getLong(25);
+        inputCount = data.getInt(33);
+        tickRate = new TickRate(data.getLong(37), data.getLong(45), data.getDouble(53));
+        rewind();
+    }
+
+    public static ReplayReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ReplayReader(mapped);
+        }
+    }
+
+    public long getSeed() { return seed; }
+
+    public int getRowCount() { return rowCount; }
+
+    public int getColCount() { return colCount; }
+
+    public int getFoodCount() { return foodCount; }
+
+    public long getTickCount() { return tickCount; }
+
+    public int getInputCount() { return inputCount; }
+
+    //tick periods of the recorded game
+    public TickRate getTickRate() { return tickRate; }
+
+    public long getTick() { return tick; }
+
+    //the game as of the current tick
+    public GameEngine getEngine() { return engine; }
+
+    //back to tick 0 with a freshly seeded game
+    public void rewind() {
+        engine = new GameEngine(rowCount, colCount, new GameRandom(seed));
+        if (engine.getFoodCount() != foodCount) {
+            engine.setFoodCount(foodCount);
+            engine.reset(new GameRandom(seed));
+        }
+        data.position(ReplayRecorder.HEADER_SIZE);
+        tick = 0;
+        direction = GameEngine.DIRECTION_NONE;
+        nextChangeTick = -1;
+        readNextInput(0);
+    }
+
+    //move to targetTick, fast-forwarding from the current tick or from the start when going backwards
+    public GameEngine seek(long targetTick) {
+        targetTick = Math.min(targetTick, tickCount);
+        if (targetTick < tick) {
+            rewind();
+        }
+        while (tick < targetTick) {
+            step();
+        }
+        return engine;
+    }
+
+    //play one recorded tick, returns null once the recording has ended
+    public TickResult step() {
+        if (tick >= tickCount) {
+            return null;
+        }
+        if (tick == nextChangeTick) {
+            direction = nextDirection;
+            readNextInput(tick);
+        }
+        tick++;
+        return engine.step(direction);
+    }
+
+    private void readNextInput(long fromTick) {
+        if (!data.hasRemaining()) {
+            nextChangeTick = -1;
+            return;
+        }
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        nextChangeTick = fromTick + (value >>> 3);
+        nextDirection = (int) (value & 7) - 2;
+    }
+
+    // usage: java ReplayReader <file> [tick]
+    public static void main(String[] args) throws IOException {
+        ReplayReader reader = open(Paths.get(args[0]));
+        long target = args.length > 1 ? Long.parseLong(args[1]) : reader.getTickCount();
+
+        long start = System.nanoTime();
+        GameEngine engine = reader.seek(target);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("seed %d, %dx%d board, %d ticks, %d inputs%n", reader.getSeed(),
+            reader.getRowCount(), reader.getColCount(), reader.getTickCount(), reader.getInputCount());
+        System.out.printf("tick %d: score %d, length %d, game over %b (%.3f ms)%n", reader.getTick(),
+            engine.getFruitsEaten(), engine.getSnake().getLength(), engine.isGameOver(), millis);
+    }
+}
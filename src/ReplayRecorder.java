@@ -0,0 +1,92 @@
+// Records the direction fed into GameEngine.step() each tick, so a game can be replayed exactly from its seed.
+// Layout (big endian): header, then one varint per direction change holding (ticks since last change << 3 | direction + 2)
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class ReplayRecorder {
+    static final int MAGIC = 0x534E4B52; // "SNKR"
+    static final byte VERSION = 3;
+    //magic, version, seed, rows, cols, food count, tick count, input count, base and fastest tick period, ramp
+    static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 4 + 4 + 8 + 4 + 8 + 8 + 8;
+
+    private final long seed;
+    private final int rowCount, colCount;
+    private final int foodCount;
+    //how fast the game ran, so a replay can be played back at the speed it was recorded
+    private final TickRate tickRate;
+    private byte[] inputs = new byte[256];
+    private int size;
+    private int inputCount;
+    private long ticks;
+    private long lastChangeTick;
+    private int lastDirection = GameEngine.DIRECTION_NONE;
+
+    public ReplayRecorder(long seed, int rowCount, int colCount, int foodCount, TickRate tickRate) {
+        this.seed = seed;
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.foodCount = foodCount;
+        this.tickRate = tickRate;
+    }
+
+    //call once per tick with the direction about to be passed to step()
+    public void record(int direction) {
+        if (direction != lastDirection) {
+            writeVarLong(((ticks - lastChangeTick) << 3) | (direction + 2));
+            lastChangeTick = ticks;
+            lastDirection = direction;
+            inputCount++;
+        }
+        ticks++;
+    }
+
+    public long getTicks() { return ticks; }
+
+    public int getInputCount() { return inputCount; }
+
+    //encoded size in bytes, header included
+    public int size() { return HEADER_SIZE + size; }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(seed);
+        buffer.putInt(rowCount);
+        buffer.putInt(colCount);
+        buffer.putInt(foodCount);
+        buffer.putLong(ticks);
+        buffer.putInt(inputCount);
+        buffer.putLong(tickRate.getBasePeriodNanos());
+        buffer.putLong(tickRate.getMinPeriodNanos());
+        buffer.putDouble(tickRate.getRampPerFood());
+        buffer.put(inputs, 0, size);
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size());
+        writeTo(buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    //unsigned LEB128, 7 bits per byte - a turn every few ticks fits in one byte
+    private void writeVarLong(long value) {
+        if (size + 10 > inputs.length) {
+            inputs = Arrays.copyOf(inputs, inputs.length << 1);
+        }
+        while ((value & ~0x7FL) != 0) {
+            inputs[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        inputs[size++] = (byte) value;
+    }
+}
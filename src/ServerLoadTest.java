@@ -0,0 +1,116 @@
+// Opens many loopback connections to a GameServer, presses random keys on all of them and prints what the
+// server keeps up with. Without a host it starts its own server in this process.
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class ServerLoadTest {
+    private static final byte[] KEYS = {
+        GameEngine.DIRECTION_UP + 2, GameEngine.DIRECTION_DOWN + 2,
+        GameEngine.DIRECTION_LEFT + 2, GameEngine.DIRECTION_RIGHT + 2
+    };
+
+    // usage: java ServerLoadTest [clients] [seconds] [host] [port]
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String host = args.length > 2 ? args[2] : null;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 7777;
+        long period = TickRate.fromSystemProperties().periodFor(0);
+
+        GameServer server = null;
+        if (host == null) {
+            server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 20, 20, period, 1L);
+            GameServer local = server;
+            Thread thread = new Thread(() -> {
+                try {
+                    local.run();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "game-server");
+            thread.setDaemon(true);
+            thread.start();
+            host = "127.0.0.1";
+            port = server.getPort();
+        }
+
+        Selector selector = Selector.open();
+        List<SocketChannel> channels = new ArrayList<>(clients);
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        for (int i = 0; i < clients; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            channels.add(channel);
+        }
+
+        SplittableRandom random = new SplittableRandom(1);
+        ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        ByteBuffer key = ByteBuffer.allocate(1);
+        long received = 0, keysSent = 0, restarts = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long nextPress = start;
+        long nextReport = start + 1_000_000_000L;
+        long lastReceived = 0;
+        while (System.nanoTime() < end) {
+            selector.select(Math.max(1, period / 1_000_000));
+            Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+            while (ready.hasNext()) {
+                SelectionKey selected = ready.next();
+                ready.remove();
+                readBuffer.clear();
+                int read = ((SocketChannel) selected.channel()).read(readBuffer);
+                if (read < 0) {
+                    selected.cancel();
+                } else {
+                    received += read;
+                }
+            }
+
+            long now = System.nanoTime();
+            //every tick, about one client in four turns and one in a few hundred starts over
+            if (now >= nextPress) {
+                for (SocketChannel channel : channels) {
+                    int roll = random.nextInt(400);
+                    if (roll < 100) {
+                        key.clear();
+                        key.put(roll == 0 ? NetProtocol.RESTART : KEYS[roll & 3]).flip();
+                        channel.write(key);
+                        if (roll == 0) {
+                            restarts++;
+                        } else {
+                            keysSent++;
+                        }
+                    }
+                }
+                nextPress += period;
+            }
+            if (now >= nextReport) {
+                String tick = server != null ? String.format(", server tick %.2f ms", server.getTickNanos() / 1e6) : "";
+                System.out.printf("%d clients, %d KB/s received%s%n", clients, (received - lastReceived) >> 10, tick);
+                lastReceived = received;
+                nextReport += 1_000_000_000L;
+            }
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d clients for %.1f s: %d key presses, %d restarts, %.1f MB received, %.1f bytes per client per tick%n",
+            clients, elapsed, keysSent, restarts, received / 1e6, received / (elapsed * 1e9 / period) / clients);
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        selector.close();
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
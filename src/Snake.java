@@ -1,47 +1,126 @@
-// To represent a snake
-import java.util.LinkedList;
+// To represent a snake - body is a ring buffer of packed board indices (row * COL_COUNT + col)
+import java.util.Arrays;
 
 public class Snake {
-    private LinkedList<Cell> snakePartList = new LinkedList<>();
-    private Cell head;
+    private final Board board;
+    private int[] body;
+    private int headPos;
+    private int length;
+    //one bit per board cell, set while a body part sits on it; pages are shared with forks until written
+    private static final int OCCUPIED_PAGE_SHIFT = 4;
+    private static final int OCCUPIED_PAGE_MASK = (1 << OCCUPIED_PAGE_SHIFT) - 1;
+    private final long[][] occupied;
+    private final boolean[] ownOccupied;
 
     //constructor
-    public Snake(Cell initPos) {
-        head = initPos;
-        snakePartList.add(head);
-        head.setCellType(CellType.SNAKE_NODE);
+    public Snake(Board board, int initPos) {
+        this.board = board;
+        body = new int[16];
+        int words = (board.ROW_COUNT * board.COL_COUNT + 63) >>> 6;
+        occupied = new long[(words + OCCUPIED_PAGE_MASK) >>> OCCUPIED_PAGE_SHIFT][1 << OCCUPIED_PAGE_SHIFT];
+        ownOccupied = new boolean[occupied.length];
+        Arrays.fill(ownOccupied, true);
+        headPos = 0;
+        length = 1;
+        body[0] = initPos;
+        occupy(initPos);
+        board.setCellType(initPos, CellType.SNAKE_NODE);
     }
 
-    //grow snake
-    public void grow() { snakePartList.add(head); }
+    //copy of other on board, a fork of other's board; the body is copied, occupancy pages are shared
+    private Snake(Board board, Snake other) {
+        this.board = board;
+        body = other.body.clone();
+        headPos = other.headPos;
+        length = other.length;
+        occupied = other.occupied.clone();
+        ownOccupied = new boolean[occupied.length];
+    }
+
+    //independent snake on forkedBoard, which must be a fork of this snake's board
+    public Snake fork(Board forkedBoard) {
+        Arrays.fill(ownOccupied, false);
+        return new Snake(forkedBoard, this);
+    }
+
+    //back to a single part on initPos, for a board that has just been cleared
+    public void reset(int initPos) {
+        for (int i = 0; i < length; i++) {
+            release(getPart(i));
+        }
+        headPos = 0;
+        length = 1;
+        body[0] = initPos;
+        occupy(initPos);
+        board.setCellType(initPos, CellType.SNAKE_NODE);
+    }
+
+    //grow snake - move head onto nextCell and keep the tail where it is
+    public void grow(int nextCell) {
+        if (length == body.length) {
+            expand();
+        }
+        addHead(nextCell);
+        length++;
+    }
 
     //move snake - remove tail, mark old head as snake and move new head
-    public void move(Cell nextCell) {
-        System.out.println("Snake is moving to " + nextCell.getRow() + " " + nextCell.getCol());
-        Cell tail = snakePartList.removeLast();
-        tail.setCellType(CellType.EMPTY);
+    public void move(int nextCell) {
+        int tail = getTail();
+        release(tail);
+        board.setCellType(tail, CellType.EMPTY);
 
-        head = nextCell;
-        head.setCellType(CellType.SNAKE_NODE);
-        snakePartList.addFirst(head);
+        addHead(nextCell);
     }
 
     //check if snake crashes into itself
-    public boolean checkCrash(Cell nextCell) {
-        System.out.println("Checking for crash");
-        for (Cell cell : snakePartList) {
-            if (cell == nextCell) {
-                return true;
-            }
-        }
-        return false;
+    public boolean checkCrash(int nextCell) {
+        return isOccupied(nextCell);
+    }
+
+    public boolean isOccupied(int index) {
+        return (occupied[index >>> (6 + OCCUPIED_PAGE_SHIFT)][(index >>> 6) & OCCUPIED_PAGE_MASK] & (1L << index)) != 0;
     }
 
-    public LinkedList<Cell> getSnakePartList() { return snakePartList; }
+    public Board getBoard() { return board; }
 
-    public void setSnakePartList(LinkedList<Cell> snakePartList) { this.snakePartList = snakePartList; }
+    public int getHead() { return body[headPos]; }
 
-    public Cell getHead() { return head; }
+    public int getTail() { return getPart(length - 1); }
 
-    public void setHead(Cell head) { this.head = head; }
+    public int getLength() { return length; }
+
+    //i = 0 is the head, i = getLength() - 1 the tail
+    public int getPart(int i) { return body[(headPos + i) & (body.length - 1)]; }
+
+    private void addHead(int nextCell) {
+        headPos = (headPos - 1) & (body.length - 1);
+        body[headPos] = nextCell;
+        occupy(nextCell);
+        board.setCellType(nextCell, CellType.SNAKE_NODE);
+    }
+
+    //double the ring buffer, unrolling it so the head sits at slot 0 again
+    private void expand() {
+        int[] expanded = new int[body.length << 1];
+        for (int i = 0; i < length; i++) {
+            expanded[i] = getPart(i);
+        }
+        body = expanded;
+        headPos = 0;
+    }
+
+    private void occupy(int index) { occupiedWords(index)[(index >>> 6) & OCCUPIED_PAGE_MASK] |= 1L << index; }
+
+    private void release(int index) { occupiedWords(index)[(index >>> 6) & OCCUPIED_PAGE_MASK] &= ~(1L << index); }
+
+    //the writable page of occupancy words holding index, copied first if a fork still shares it
+    private long[] occupiedWords(int index) {
+        int page = index >>> (6 + OCCUPIED_PAGE_SHIFT);
+        if (!ownOccupied[page]) {
+            occupied[page] = occupied[page].clone();
+            ownOccupied[page] = true;
+        }
+        return occupied[page];
+    }
 }
@@ -0,0 +1,31 @@
+// Lock-free triple buffer of GameSnapshots between one writer (tick thread) and one reader (EDT).
+// The writer always has a spare buffer to fill, and the reader's buffer is never touched until it acquires again.
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SnapshotExchange {
+    private static final int FRESH = 4;
+
+    private final GameSnapshot[] buffers = { new GameSnapshot(), new GameSnapshot(), new GameSnapshot() };
+    //index of the middle buffer, plus FRESH when it holds a snapshot the reader has not taken yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // writer only
+    private int front = 2; // reader only
+
+    //buffer the writer fills before calling publish()
+    public GameSnapshot getBack() { return buffers[back]; }
+
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & 3;
+    }
+
+    //latest published snapshot; stays valid until the next acquire()
+    public GameSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & 3;
+        }
+        return buffers[front];
+    }
+
+    //the snapshot returned by the last acquire()
+    public GameSnapshot current() { return buffers[front]; }
+}
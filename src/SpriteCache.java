@@ -0,0 +1,210 @@
+// Pre-rendered snake, head, food and glow images for one cell size, blitted by GamePanel instead of
+// rebuilding paints and shapes for every cell on every frame
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+
+public class SpriteCache {
+    //food pulses between 0.8 and 1.2 in steps of 0.03, one sprite per step
+    static final float PULSE_MIN = 0.8f, PULSE_MAX = 1.2f, PULSE_STEP = 0.03f;
+    static final int PULSE_STEPS = Math.round((PULSE_MAX - PULSE_MIN) / PULSE_STEP) + 1;
+
+    private int cellWidth, cellHeight;
+    private double scale;
+    private GraphicsConfiguration config;
+
+    private BufferedImage bodySegment;
+    private BufferedImage wall;
+    private final BufferedImage[] heads = new BufferedImage[4];
+    private final BufferedImage[] food = new BufferedImage[PULSE_STEPS];
+    private BufferedImage glow;
+    private int glowSize;
+
+    //rebuild the sprites if the cell size or the HiDPI scale changed since the last frame
+    public void validate(int cellWidth, int cellHeight, double scale, GraphicsConfiguration config) {
+        if (bodySegment != null && cellWidth == this.cellWidth && cellHeight == this.cellHeight
+                && scale == this.scale && config == this.config) {
+            return;
+        }
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.scale = scale;
+        this.config = config;
+
+        bodySegment = renderBodySegment();
+        wall = renderWall();
+        heads[0] = renderHead(0);
+        heads[1] = renderHead(1);
+        heads[2] = renderHead(2);
+        heads[3] = renderHead(3);
+        for (int i = 0; i < PULSE_STEPS; i++) {
+            food[i] = renderFood(Math.min(PULSE_MAX, PULSE_MIN + i * PULSE_STEP));
+        }
+        glowSize = 2 * Math.max(cellWidth, cellHeight);
+        glow = renderGlow(Color.RED);
+    }
+
+    public BufferedImage getBodySegment() { return bodySegment; }
+
+    public BufferedImage getWall() { return wall; }
+
+    public BufferedImage getHead(int direction) { return heads[quarterTurns(direction)]; }
+
+    public BufferedImage getFood(float pulseValue) {
+        int step = Math.round((pulseValue - PULSE_MIN) / PULSE_STEP);
+        return food[Math.max(0, Math.min(PULSE_STEPS - 1, step))];
+    }
+
+    public BufferedImage getGlow() { return glow; }
+
+    //width and height of the glow sprite in panel pixels, it is centered on the food cell
+    public int getGlowSize() { return glowSize; }
+
+    private void drawBodySegment(Graphics2D g2d) {
+        GradientPaint snakeGradient = new GradientPaint(
+            0, 0, new Color(0, 180, 0),
+            cellWidth, cellHeight, new Color(0, 240, 0));
+        g2d.setPaint(snakeGradient);
+
+        int roundSize = Math.max(8, Math.min(cellWidth, cellHeight) / 3);
+        g2d.fill(new RoundRectangle2D.Float(1, 1, cellWidth - 2, cellHeight - 2, roundSize, roundSize));
+
+        g2d.setColor(new Color(255, 255, 255, 60));
+        g2d.fillRect(cellWidth/6, cellHeight/6, cellWidth/3, cellHeight/3);
+    }
+
+    private void drawWall(Graphics2D g2d) {
+        g2d.setPaint(new GradientPaint(0, 0, new Color(120, 120, 130), cellWidth, cellHeight, new Color(70, 70, 80)));
+        g2d.fillRect(0, 0, cellWidth, cellHeight);
+
+        g2d.setColor(new Color(255, 255, 255, 40));
+        g2d.fillRect(0, 0, cellWidth, Math.max(1, cellHeight / 8));
+        g2d.setColor(new Color(0, 0, 0, 60));
+        g2d.drawRect(0, 0, cellWidth - 1, cellHeight - 1);
+    }
+
+    private void drawHead(Graphics2D g2d) {
+        g2d.setColor(new Color(0, 180, 0));
+        int roundSize = Math.max(8, Math.min(cellWidth, cellHeight) / 3);
+        g2d.fillRoundRect(1, 1, cellWidth - 2, cellHeight - 2, roundSize, roundSize);
+
+        g2d.setColor(Color.WHITE);
+        int eyeSize = Math.max(2, cellWidth / 5);
+        g2d.fillOval(cellWidth/5, cellHeight/4, eyeSize, eyeSize);
+        g2d.fillOval(3*cellWidth/5, cellHeight/4, eyeSize, eyeSize);
+
+        g2d.setColor(Color.BLACK);
+        int pupilSize = Math.max(1, eyeSize / 2);
+        g2d.fillOval(cellWidth/5 + eyeSize/4, cellHeight/4 + eyeSize/4, pupilSize, pupilSize);
+        g2d.fillOval(3*cellWidth/5 + eyeSize/4, cellHeight/4 + eyeSize/4, pupilSize, pupilSize);
+    }
+
+    private void drawFood(Graphics2D g2d, float pulseValue) {
+        RadialGradientPaint appleGradient = new RadialGradientPaint(
+            new Point(cellWidth/2, cellHeight/2),
+            Math.min(cellWidth, cellHeight) / 2 * pulseValue,
+            new float[] {0.0f, 1.0f},
+            new Color[] {new Color(255, 50, 50), new Color(180, 0, 0)}
+        );
+        g2d.setPaint(appleGradient);
+
+        int size = (int)(Math.min(cellWidth, cellHeight) * 0.8 * pulseValue);
+        int offsetX = (cellWidth - size) / 2;
+        int offsetY = (cellHeight - size) / 2;
+        g2d.fillOval(offsetX, offsetY, size, size);
+
+        g2d.setColor(new Color(101, 67, 33));
+        g2d.fillRect(cellWidth/2 - cellWidth/10, cellHeight/5, cellWidth/5, cellHeight/7);
+
+        g2d.setColor(new Color(255, 255, 255, 100));
+        g2d.fillOval(cellWidth/4, cellHeight/4, cellWidth/3, cellHeight/5);
+    }
+
+    private void drawGlow(Graphics2D g2d, Color color) {
+        int maxRadius = Math.max(cellWidth, cellHeight);
+        int center = glowSize / 2;
+
+        for (int i = 0; i < 5; i++) {
+            float alpha = 0.1f - (i * 0.02f);
+            if (alpha > 0) {
+                int size = maxRadius + (i * maxRadius/4);
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+                g2d.setColor(color);
+                g2d.fillOval(center - size/2, center - size/2, size, size);
+            }
+        }
+    }
+
+    private BufferedImage renderBodySegment() {
+        BufferedImage image = createImage(cellWidth, cellHeight);
+        Graphics2D g2d = createGraphics(image);
+        drawBodySegment(g2d);
+        g2d.dispose();
+        return image;
+    }
+
+    private BufferedImage renderWall() {
+        BufferedImage image = createImage(cellWidth, cellHeight);
+        Graphics2D g2d = createGraphics(image);
+        drawWall(g2d);
+        g2d.dispose();
+        return image;
+    }
+
+    //the head is drawn facing up and turned a quarter at a time for the other directions
+    private BufferedImage renderHead(int quarterTurns) {
+        BufferedImage image = createImage(cellWidth, cellHeight);
+        Graphics2D g2d = createGraphics(image);
+        g2d.transform(AffineTransform.getQuadrantRotateInstance(quarterTurns, cellWidth / 2.0, cellHeight / 2.0));
+        drawHead(g2d);
+        g2d.dispose();
+        return image;
+    }
+
+    private BufferedImage renderFood(float pulseValue) {
+        BufferedImage image = createImage(cellWidth, cellHeight);
+        Graphics2D g2d = createGraphics(image);
+        drawFood(g2d, pulseValue);
+        g2d.dispose();
+        return image;
+    }
+
+    private BufferedImage renderGlow(Color color) {
+        BufferedImage image = createImage(glowSize, glowSize);
+        Graphics2D g2d = createGraphics(image);
+        drawGlow(g2d, color);
+        g2d.dispose();
+        return image;
+    }
+
+    //backing image at device resolution, so sprites stay sharp on HiDPI screens
+    private BufferedImage createImage(int width, int height) {
+        int deviceWidth = Math.max(1, (int) Math.ceil(width * scale));
+        int deviceHeight = Math.max(1, (int) Math.ceil(height * scale));
+        if (config != null) {
+            return config.createCompatibleImage(deviceWidth, deviceHeight, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(deviceWidth, deviceHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.scale(scale, scale);
+        return g2d;
+    }
+
+    private static int quarterTurns(int direction) {
+        switch (direction) {
+            case GameEngine.DIRECTION_RIGHT:
+                return 1;
+            case GameEngine.DIRECTION_DOWN:
+                return 2;
+            case GameEngine.DIRECTION_LEFT:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+// Game counters, latency histograms and JFR events. Off unless run with -Dsnake.telemetry=true,
+// and every hook checks the ENABLED constant first, so a disabled build does no work and allocates nothing.
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public final class Telemetry {
+    public static final boolean ENABLED = Boolean.getBoolean("snake.telemetry");
+
+    public static final LongAdder TICKS = new LongAdder();
+    public static final LongAdder FOOD_EATEN = new LongAdder();
+    public static final LongAdder GAMES_OVER = new LongAdder();
+    public static final LongAdder FRAMES = new LongAdder();
+    public static final LongAdder DROPPED_FRAMES = new LongAdder();
+
+    public static final LatencyHistogram UPDATE = new LatencyHistogram("update");
+    public static final LatencyHistogram FOOD_GENERATION = new LatencyHistogram("food generation");
+    public static final LatencyHistogram PAINT = new LatencyHistogram("paint");
+    public static final LatencyHistogram TICK_JITTER = new LatencyHistogram("tick jitter");
+    public static final LatencyHistogram FRAME_TIME = new LatencyHistogram("frame time");
+    public static final LatencyHistogram PRESENT = new LatencyHistogram("present");
+    public static final LatencyHistogram INPUT_LATENCY = new LatencyHistogram("input to move");
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.println(snapshot()), "telemetry-dump"));
+        }
+    }
+
+    private Telemetry() {}
+
+    //start timestamp for a timed section, 0 when disabled
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void recordTick(long start, TickResult result) {
+        if (!ENABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        TICKS.increment();
+        UPDATE.record(elapsed);
+
+        TickEvent event = new TickEvent();
+        if (event.isEnabled()) {
+            event.result = result.name();
+            event.durationNanos = elapsed;
+            event.commit();
+        }
+    }
+
+    public static void recordFoodEaten(int score, long generationStart) {
+        if (!ENABLED) {
+            return;
+        }
+        FOOD_EATEN.increment();
+        FOOD_GENERATION.record(System.nanoTime() - generationStart);
+
+        FoodEatenEvent event = new FoodEatenEvent();
+        if (event.isEnabled()) {
+            event.score = score;
+            event.commit();
+        }
+    }
+
+    public static void recordGameOver(int score, long ticks, boolean won) {
+        if (!ENABLED) {
+            return;
+        }
+        GAMES_OVER.increment();
+
+        GameOverEvent event = new GameOverEvent();
+        if (event.isEnabled()) {
+            event.score = score;
+            event.ticks = ticks;
+            event.won = won;
+            event.commit();
+        }
+    }
+
+    //how late a scheduled tick started
+    public static void recordTickJitter(long lateNanos) {
+        if (ENABLED) {
+            TICK_JITTER.record(lateNanos);
+        }
+    }
+
+    //from a key press to the tick that turns the snake
+    public static void recordInputLatency(long nanos) {
+        if (ENABLED) {
+            INPUT_LATENCY.record(nanos);
+        }
+    }
+
+    //time between animation frames; each whole target interval missed counts as a dropped frame
+    public static void recordFrame(long intervalNanos, long targetNanos) {
+        if (!ENABLED) {
+            return;
+        }
+        FRAME_TIME.record(intervalNanos);
+        long missed = (intervalNanos + targetNanos / 2) / targetNanos - 1;
+        if (missed > 0) {
+            DROPPED_FRAMES.add(missed);
+        }
+    }
+
+    //how long flipping a finished frame onto the screen took, active rendering only
+    public static void recordPresent(long nanos) {
+        if (ENABLED) {
+            PRESENT.record(nanos);
+        }
+    }
+
+    public static void recordPaint(long start) {
+        if (!ENABLED) {
+            return;
+        }
+        FRAMES.increment();
+        PAINT.record(System.nanoTime() - start);
+    }
+
+    public static String snapshot() {
+        StringBuilder builder = new StringBuilder("snake telemetry\n");
+        builder.append("  ticks=").append(TICKS.sum())
+               .append(" foodEaten=").append(FOOD_EATEN.sum())
+               .append(" gamesOver=").append(GAMES_OVER.sum())
+               .append(" frames=").append(FRAMES.sum())
+               .append(" droppedFrames=").append(DROPPED_FRAMES.sum()).append('\n');
+        builder.append("  ").append(UPDATE).append('\n');
+        builder.append("  ").append(FOOD_GENERATION).append('\n');
+        builder.append("  ").append(PAINT).append('\n');
+        builder.append("  ").append(TICK_JITTER).append('\n');
+        builder.append("  ").append(FRAME_TIME).append('\n');
+        builder.append("  ").append(PRESENT).append('\n');
+        builder.append("  ").append(INPUT_LATENCY).append('\n');
+        return builder.toString();
+    }
+
+    @Name("snake.Tick")
+    @Label("Snake Tick")
+    @Category("Snake")
+    static class TickEvent extends Event {
+        @Label("Result")
+        String result;
+        @Label("Duration (ns)")
+        long durationNanos;
+    }
+
+    @Name("snake.FoodEaten")
+    @Label("Food Eaten")
+    @Category("Snake")
+    static class FoodEatenEvent extends Event {
+        @Label("Score")
+        int score;
+    }
+
+    @Name("snake.GameOver")
+    @Label("Game Over")
+    @Category("Snake")
+    static class GameOverEvent extends Event {
+        @Label("Score")
+        int score;
+        @Label("Ticks")
+        long ticks;
+        @Label("Won")
+        boolean won;
+    }
+}
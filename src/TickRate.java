@@ -0,0 +1,35 @@
+// Tick period for a game, optionally speeding up as the score rises.
+// Configured with -Dsnake.tick.ms (start period), -Dsnake.tick.min.ms (fastest period)
+// and -Dsnake.tick.ramp (fraction faster per food eaten, 0 for a constant rate).
+public class TickRate {
+    private final long basePeriodNanos;
+    private final long minPeriodNanos;
+    private final double rampPerFood;
+
+    public TickRate(long basePeriodNanos, long minPeriodNanos, double rampPerFood) {
+        this.basePeriodNanos = basePeriodNanos;
+        this.minPeriodNanos = Math.min(minPeriodNanos, basePeriodNanos);
+        this.rampPerFood = rampPerFood;
+    }
+
+    public static TickRate fromSystemProperties() {
+        double baseMillis = Double.parseDouble(System.getProperty("snake.tick.ms", "500"));
+        double minMillis = Double.parseDouble(System.getProperty("snake.tick.min.ms", "50"));
+        double ramp = Double.parseDouble(System.getProperty("snake.tick.ramp", "0"));
+        return new TickRate((long) (baseMillis * 1e6), (long) (minMillis * 1e6), ramp);
+    }
+
+    public long getBasePeriodNanos() { return basePeriodNanos; }
+
+    public long getMinPeriodNanos() { return minPeriodNanos; }
+
+    public double getRampPerFood() { return rampPerFood; }
+
+    public long periodFor(int score) {
+        if (rampPerFood <= 0) {
+            return basePeriodNanos;
+        }
+        long period = (long) (basePeriodNanos * Math.pow(1 - rampPerFood, score));
+        return Math.max(minPeriodNanos, period);
+    }
+}
@@ -0,0 +1,8 @@
+//enum for the outcome of a single game tick
+public enum TickResult {
+    IDLE,
+    MOVED,
+    ATE,
+    CRASHED,
+    WON;
+}
@@ -0,0 +1,240 @@
+// Many independent games stepped together for training agents, with no Swing and no per-step allocation.
+// Each game is its own GameEngine object, with its generator, seed stream and steps since food held alongside it
+// in arrays indexed by game, and each step writes the rewards and done flags into the caller's arrays.
+// Observations go straight into a caller-provided buffer, e.g. a direct one shared with native code, laid out
+// [game][channel][row][col] with 1 where the channel applies and 0 elsewhere:
+//  - BODY: every snake cell, head included
+//  - HEAD: the head only
+//  - FOOD: food cells
+// Only the cells a step changed are rewritten. A finished game starts over on its next step, reseeded from its
+// own seed stream, so a run depends only on the seeds and actions and never on the thread count.
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class VecEnv {
+    public static final int CHANNELS = 3;
+    public static final int BODY = 0, HEAD = 1, FOOD = 2;
+    //action i turns the snake this way, a 180 degree turn is ignored as in the game
+    public static final int[] ACTIONS = {
+        GameEngine.DIRECTION_UP, GameEngine.DIRECTION_DOWN, GameEngine.DIRECTION_LEFT, GameEngine.DIRECTION_RIGHT
+    };
+    public static final float FOOD_REWARD = 1f;
+    public static final float CRASH_REWARD = -1f;
+
+    final int ROW_COUNT, COL_COUNT;
+    private final int envCount;
+    private final int cellCount;
+    //exactly one of these is set, bytes or floats per observation value
+    private final ByteBuffer byteObservations;
+    private final FloatBuffer floatObservations;
+
+    private final GameEngine[] engines;
+    private final GameRandom[] randoms;
+    //GameRandom state per game, drawn from for the seed of every game after the first
+    private final long[] seedState;
+    //steps since the last food, a game that goes this long without eating is ended
+    private final int[] hungry;
+    private final int starveSteps;
+
+    //the step or reset in progress, read by the chunk tasks
+    private long[] resetSeeds;
+    private int[] stepActions;
+    private float[] stepRewards;
+    private boolean[] stepDones;
+
+    private final ForkJoinPool pool;
+    private final int chunkCount;
+    private final RecursiveAction[] chunks;
+    private final RecursiveAction allChunks;
+
+    public VecEnv(int envCount, int rowCount, int colCount, ByteBuffer observations, ForkJoinPool pool) {
+        this(envCount, rowCount, colCount, observations, null, pool);
+    }
+
+    public VecEnv(int envCount, int rowCount, int colCount, FloatBuffer observations, ForkJoinPool pool) {
+        this(envCount, rowCount, colCount, null, observations, pool);
+    }
+
+    //pool runs the games, or null to run them on the calling thread
+    private VecEnv(int envCount, int rowCount, int colCount, ByteBuffer byteObservations,
+                   FloatBuffer floatObservations, ForkJoinPool pool) {
+        ROW_COUNT = rowCount;
+        COL_COUNT = colCount;
+        this.envCount = envCount;
+        cellCount = rowCount * colCount;
+        long size = getObservationSize(envCount, rowCount, colCount);
+        int capacity = byteObservations != null ? byteObservations.capacity() : floatObservations.capacity();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Observations for " + envCount + " games exceed one buffer");
+        }
+        if (capacity < size) {
+            throw new IllegalArgumentException("Observation buffer holds " + capacity + " values, " + size + " needed");
+        }
+        this.byteObservations = byteObservations;
+        this.floatObservations = floatObservations;
+        this.pool = pool;
+        starveSteps = cellCount;
+
+        engines = new GameEngine[envCount];
+        randoms = new GameRandom[envCount];
+        seedState = new long[envCount];
+        hungry = new int[envCount];
+        for (int e = 0; e < envCount; e++) {
+            randoms[e] = new GameRandom(e);
+            engines[e] = new GameEngine(rowCount, colCount, randoms[e]);
+        }
+
+        //a few chunks per worker so games that end and rewrite their whole observation still balance
+        int workers = pool == null ? 1 : pool.getParallelism();
+        chunkCount = Math.max(1, Math.min(envCount, workers == 1 ? 1 : workers * 4));
+        int perChunk = (envCount + chunkCount - 1) / chunkCount;
+        chunks = new RecursiveAction[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int from = Math.min(envCount, c * perChunk);
+            int to = Math.min(envCount, from + perChunk);
+            chunks[c] = new RecursiveAction() {
+                @Override
+                protected void compute() { runGames(from, to); }
+            };
+        }
+        allChunks = new RecursiveAction() {
+            @Override
+            protected void compute() { invokeAll(chunks); }
+        };
+    }
+
+    //values the observation buffer needs for these games
+    public static long getObservationSize(int envCount, int rowCount, int colCount) {
+        return (long) envCount * CHANNELS * rowCount * colCount;
+    }
+
+    //start every game over, game e seeded with seeds[e], and write all observations
+    public void reset(long[] seeds) {
+        if (seeds.length != envCount) {
+            throw new IllegalArgumentException(seeds.length + " seeds for " + envCount + " games");
+        }
+        resetSeeds = seeds;
+        runChunks();
+        resetSeeds = null;
+    }
+
+    //move game e with ACTIONS[actions[e]], its reward and whether it ended go to rewards[e] and dones[e].
+    //A game that ended is already started over in the observation
+    public void step(int[] actions, float[] rewards, boolean[] dones) {
+        if (actions.length != envCount || rewards.length != envCount || dones.length != envCount) {
+            throw new IllegalArgumentException("Arrays must have one entry per game, " + envCount);
+        }
+        stepActions = actions;
+        stepRewards = rewards;
+        stepDones = dones;
+        runChunks();
+        stepActions = null;
+        stepRewards = null;
+        stepDones = null;
+    }
+
+    private void runChunks() {
+        if (pool == null || chunkCount == 1) {
+            for (RecursiveAction chunk : chunks) {
+                chunk.reinitialize();
+                chunk.invoke();
+            }
+        } else {
+            //tasks are reused, so a step only costs the pool's own bookkeeping
+            for (RecursiveAction chunk : chunks) {
+                chunk.reinitialize();
+            }
+            allChunks.reinitialize();
+            pool.invoke(allChunks);
+        }
+    }
+
+    private void runGames(int from, int to) {
+        for (int e = from; e < to; e++) {
+            if (resetSeeds != null) {
+                seedState[e] = resetSeeds[e];
+                startOver(e, resetSeeds[e]);
+            } else {
+                stepGame(e);
+            }
+        }
+    }
+
+    private void stepGame(int e) {
+        GameEngine engine = engines[e];
+        Board board = engine.getBoard();
+        int oldHead = engine.getSnake().getHead();
+        TickResult result = engine.step(ACTIONS[stepActions[e]]);
+
+        float reward = 0f;
+        boolean done = false;
+        if (result == TickResult.ATE || result == TickResult.WON) {
+            reward = FOOD_REWARD;
+            hungry[e] = 0;
+            done = result == TickResult.WON;
+        } else if (result == TickResult.CRASHED) {
+            reward = CRASH_REWARD;
+            done = true;
+        } else if (++hungry[e] >= starveSteps) {
+            done = true;
+        }
+        stepRewards[e] = reward;
+        stepDones[e] = done;
+
+        if (done) {
+            startOver(e, nextSeed(e));
+        } else if (board.isDirtyOverflow()) {
+            writeObservation(e);
+        } else {
+            int base = e * CHANNELS * cellCount;
+            for (int i = 0; i < board.getDirtyCount(); i++) {
+                int cell = board.getDirtyCell(i);
+                CellType type = board.getCellType(cell);
+                put(base + BODY * cellCount + cell, type == CellType.SNAKE_NODE);
+                put(base + FOOD * cellCount + cell, type == CellType.FOOD);
+            }
+            put(base + HEAD * cellCount + oldHead, false);
+            put(base + HEAD * cellCount + engine.getSnake().getHead(), true);
+        }
+        board.clearDirty();
+    }
+
+    private void startOver(int e, long seed) {
+        randoms[e].setState(seed);
+        engines[e].reset(randoms[e]);
+        hungry[e] = 0;
+        writeObservation(e);
+        engines[e].getBoard().clearDirty();
+    }
+
+    //all three channels of game e from its board
+    private void writeObservation(int e) {
+        Board board = engines[e].getBoard();
+        int base = e * CHANNELS * cellCount;
+        for (int cell = 0; cell < cellCount; cell++) {
+            CellType type = board.getCellType(cell);
+            put(base + BODY * cellCount + cell, type == CellType.SNAKE_NODE);
+            put(base + HEAD * cellCount + cell, false);
+            put(base + FOOD * cellCount + cell, type == CellType.FOOD);
+        }
+        put(base + HEAD * cellCount + engines[e].getSnake().getHead(), true);
+    }
+
+    //absolute puts leave the buffer's position alone, so chunks can write their own games concurrently
+    private void put(int index, boolean set) {
+        if (floatObservations != null) {
+            floatObservations.put(index, set ? 1f : 0f);
+        } else {
+            byteObservations.put(index, set ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    private long nextSeed(int e) { return GameRandom.nextLong(seedState, e); }
+
+    public int getEnvCount() { return envCount; }
+
+    //the game behind env e, for inspection - stepping it directly desynchronizes its observation
+    public GameEngine getEngine(int e) { return engines[e]; }
+}
@@ -0,0 +1,77 @@
+// Steps a VecEnv with random actions and prints env-steps per second
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+public class VecEnvSimulator {
+    // usage: java VecEnvSimulator [envs] [rows] [cols] [steps] [threads] [seed]
+    public static void main(String[] args) {
+        int envs = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int steps = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1L;
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            FloatBuffer observations = ByteBuffer
+                .allocateDirect((int) VecEnv.getObservationSize(envs, rows, cols) * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+            VecEnv env = new VecEnv(envs, rows, cols, observations, pool);
+            long[] seeds = new long[envs];
+            for (int e = 0; e < envs; e++) {
+                seeds[e] = seed + e;
+            }
+            int[] actions = new int[envs];
+            float[] rewards = new float[envs];
+            boolean[] dones = new boolean[envs];
+            SplittableRandom random = new SplittableRandom(seed);
+            env.reset(seeds);
+
+            //let the JIT settle before timing
+            for (int i = 0; i < Math.max(steps, 1_000_000 / envs); i++) {
+                randomActions(random, actions);
+                env.step(actions, rewards, dones);
+            }
+
+            long episodes = 0, food = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < steps; i++) {
+                randomActions(random, actions);
+                env.step(actions, rewards, dones);
+                for (int e = 0; e < envs; e++) {
+                    if (dones[e]) {
+                        episodes++;
+                    }
+                    if (rewards[e] > 0) {
+                        food++;
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d envs on %dx%d with %d threads, %d steps in %.3f s%n",
+                envs, rows, cols, threads, steps, seconds);
+            System.out.printf("throughput: %.0f env-steps/s, %.1f us/step%n",
+                (double) steps * envs / seconds, seconds * 1e6 / steps);
+            System.out.printf("episodes finished %d, food eaten %d%n", episodes, food);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    //one direction in four keeps a random snake alive a while, so turn on one step in four
+    private static void randomActions(SplittableRandom random, int[] actions) {
+        for (int e = 0; e < actions.length; e++) {
+            if (random.nextInt(4) == 0) {
+                actions[e] = random.nextInt(VecEnv.ACTIONS.length);
+            }
+        }
+    }
+}